@@ -3,6 +3,7 @@ package com.aitravelplanner.backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -16,6 +17,7 @@ import java.nio.file.Paths;
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class Application {
 
     public static void main(String[] args) {
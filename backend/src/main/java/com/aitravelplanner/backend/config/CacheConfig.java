@@ -0,0 +1,43 @@
+package com.aitravelplanner.backend.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 应用层缓存配置
+ * Trip、User和行程偏好由Hibernate二级缓存负责（见application.conf），
+ * 这里只配置按行程缓存的行程计划（由位置构建的DTO，不缓存实体）
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String TRIP_LOCATIONS = "tripLocations";
+
+    @Value("${cache.trip-locations.maximum-size:5000}")
+    private long tripLocationsMaximumSize;
+
+    @Value("${cache.trip-locations.expire-after-write-minutes:30}")
+    private long tripLocationsExpireMinutes;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager(TRIP_LOCATIONS);
+        caffeineCacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(tripLocationsMaximumSize)
+                .expireAfterWrite(tripLocationsExpireMinutes, TimeUnit.MINUTES)
+                .recordStats());
+        caffeineCacheManager.setAllowNullValues(false);
+
+        // 在事务提交后才执行put/evict，避免提交前的并发读把旧数据重新写回缓存
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
@@ -0,0 +1,39 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.service.ExportService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 账户数据
+ */
+@RestController
+@RequestMapping("/api/account")
+public class AccountController {
+
+    private final ExportService exportService;
+
+    public AccountController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * 流式导出账户的全部行程、位置和消费记录为NDJSON
+     */
+    @GetMapping("/export")
+    public void exportAccount(@AuthenticationPrincipal AuthenticatedUser principal,
+                              HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("account-export.ndjson").build().toString());
+        exportService.writeAccountNdjson(principal.getId(), response.getOutputStream());
+    }
+}
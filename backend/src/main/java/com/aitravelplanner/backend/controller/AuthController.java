@@ -2,22 +2,29 @@ package com.aitravelplanner.backend.controller;
 
 import com.aitravelplanner.backend.dto.AuthResponse;
 import com.aitravelplanner.backend.dto.LoginRequest;
+import com.aitravelplanner.backend.dto.RefreshTokenRequest;
 import com.aitravelplanner.backend.dto.RegisterRequest;
-import com.aitravelplanner.backend.model.User;
-import com.aitravelplanner.backend.security.JwtUtil;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.security.PasswordHashingExecutor;
+import com.aitravelplanner.backend.service.RefreshTokenService;
 import com.aitravelplanner.backend.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -31,49 +38,120 @@ public class AuthController {
     private UserService userService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
 
-    // 用户注册端点
+    // 用户注册端点，密码哈希在专用线程池中计算
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest registerRequest) {
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest registerRequest) {
+        CompletableFuture<ResponseEntity<?>> result;
         try {
-            // 注册用户
-            User user = userService.registerUser(registerRequest.getEmail(), registerRequest.getPassword());
-            return new ResponseEntity<>(HttpStatus.CREATED);
-        } catch (RuntimeException e) {
-            return new ResponseEntity<>("Email already exists", HttpStatus.BAD_REQUEST);
+            result = passwordHashingExecutor.submit(() -> {
+                // 注册用户
+                userService.registerUser(registerRequest.getEmail(), registerRequest.getPassword());
+                return new ResponseEntity<>(HttpStatus.CREATED);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
         }
+        return result.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            // 邮箱已存在；并发注册同一邮箱时由唯一约束拒绝
+            if (cause instanceof IllegalArgumentException
+                    || (cause instanceof DataIntegrityViolationException && userService.existsByEmail(registerRequest.getEmail()))) {
+                return new ResponseEntity<>("Email already exists", HttpStatus.BAD_REQUEST);
+            }
+            logger.error("Registration failed for email: {}", registerRequest.getEmail(), cause);
+            return unexpected(cause);
+        });
     }
 
-    // 用户登录端点
+    // 用户登录端点，BCrypt校验在专用线程池中执行，不占用Tomcat线程
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> loginUser(@RequestBody LoginRequest loginRequest) {
+        logger.info("Login attempt for email: {}", loginRequest.getEmail());
+
+        CompletableFuture<ResponseEntity<?>> result;
+        try {
+            result = passwordHashingExecutor.submit(() -> {
+                // 验证用户凭证
+                Authentication authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(
+                                loginRequest.getEmail(),
+                                loginRequest.getPassword()
+                        )
+                );
+
+                // 生成访问token和刷新token，访问token携带用户ID和token版本
+                AuthenticatedUser userDetails = (AuthenticatedUser) authentication.getPrincipal();
+                logger.info("Authentication successful, generating JWT for user: {}", userDetails.getUsername());
+                return ResponseEntity.ok(refreshTokenService.issueTokens(userDetails));
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Password hashing pool saturated, rejecting login for: {}", loginRequest.getEmail());
+            return CompletableFuture.completedFuture(busy());
+        }
+        return result.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof AuthenticationException) {
+                // 密码错误属于正常情况，不输出堆栈
+                logger.warn("Login failed for email: {}: {}", loginRequest.getEmail(), cause.getMessage());
+                return new ResponseEntity<>("Invalid email or password", HttpStatus.UNAUTHORIZED);
+            }
+            logger.error("Login failed for email: {}", loginRequest.getEmail(), cause);
+            return unexpected(cause);
+        });
+    }
+
+    // 用刷新token换取新的访问token，旧刷新token同时失效
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest request) {
         try {
-            logger.info("Login attempt for email: {}", loginRequest.getEmail());
-            
-            // 验证用户凭证
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(
-                            loginRequest.getEmail(),
-                            loginRequest.getPassword()
-                    )
-            );
-
-            // 设置认证信息
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-
-            // 生成JWT token
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            logger.info("Authentication successful, generating JWT for user: {}", userDetails.getUsername());
-            
-            String jwt = jwtUtil.generateToken(userDetails.getUsername());
-            logger.info("JWT generated successfully");
-
-            // 返回token
-            return ResponseEntity.ok(new AuthResponse(jwt, userDetails.getUsername()));
-        } catch (Exception e) {
-            logger.error("Login error: ", e);
-            return new ResponseEntity<>("Invalid email or password", HttpStatus.UNAUTHORIZED);
+            AuthResponse response = refreshTokenService.refresh(request.getRefreshToken());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.UNAUTHORIZED);
+        }
+    }
+
+    // 注销：吊销该刷新token所在的家族
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody RefreshTokenRequest request) {
+        try {
+            refreshTokenService.revoke(request.getRefreshToken());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // 吊销当前用户已签发的所有token
+    @PostMapping("/logout-all")
+    public ResponseEntity<Void> logoutAll(@AuthenticationPrincipal AuthenticatedUser principal) {
+        if (principal == null) {
+            return new ResponseEntity<>(HttpStatus.UNAUTHORIZED);
+        }
+        userService.revokeTokens(principal.getId());
+        refreshTokenService.revokeAllForUser(principal.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseEntity<?> busy() {
+        return new ResponseEntity<>("Too many authentication requests, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // CompletableFuture把任务中抛出的异常包装为CompletionException
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    // 任务中的非预期异常：线程池拒绝时返回503，其余返回500
+    private static ResponseEntity<?> unexpected(Throwable cause) {
+        if (cause instanceof RejectedExecutionException) {
+            return busy();
         }
+        return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
     }
-}
\ No newline at end of file
+}
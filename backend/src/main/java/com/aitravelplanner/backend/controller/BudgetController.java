@@ -1,13 +1,15 @@
 package com.aitravelplanner.backend.controller;
 
+import com.aitravelplanner.backend.dto.BudgetBreakdownResponse;
 import com.aitravelplanner.backend.dto.BudgetResponse;
 import com.aitravelplanner.backend.model.User;
-import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
 import com.aitravelplanner.backend.service.BudgetService;
+import com.aitravelplanner.backend.service.ContentVersionService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.UUID;
 
@@ -16,26 +18,55 @@ import java.util.UUID;
 public class BudgetController {
 
     private final BudgetService budgetService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final ContentVersionService contentVersionService;
 
-    public BudgetController(BudgetService budgetService, UserRepository userRepository) {
+    public BudgetController(BudgetService budgetService, CurrentUserResolver currentUserResolver, ContentVersionService contentVersionService) {
         this.budgetService = budgetService;
-        this.userRepository = userRepository;
+        this.currentUserResolver = currentUserResolver;
+        this.contentVersionService = contentVersionService;
     }
 
     @GetMapping("/{tripId}")
     public ResponseEntity<BudgetResponse> getBudgetStatus(
             @PathVariable UUID tripId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
+        
+        // 预算和消费记录都未变化时直接返回304
+        String etag = contentVersionService.budgetEtag(tripId, user);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         
         // 调用服务获取预算状态
         BudgetResponse budgetResponse = budgetService.getBudgetStatus(tripId, user);
         
-        return ResponseEntity.ok(budgetResponse);
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE).body(budgetResponse);
+    }
+
+    /**
+     * 预算分析：按类别、按日期的消费汇总，逐日燃尽和预计总花费
+     * 消费记录、行程总预算或日期变化时ETag变化
+     */
+    @GetMapping("/{tripId}/breakdown")
+    public ResponseEntity<BudgetBreakdownResponse> getBudgetBreakdown(
+            @PathVariable UUID tripId,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        
+        User user = currentUserResolver.resolve(principal);
+        
+        // 预算、消费记录和日期都未变化时直接返回304
+        String etag = contentVersionService.budgetBreakdownEtag(tripId, user);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        
+        BudgetBreakdownResponse breakdown = budgetService.getBudgetBreakdown(tripId, user);
+        
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE).body(breakdown);
     }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.dto.CacheRegionStats;
+import com.aitravelplanner.backend.service.CacheStatsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 内部运维接口（仅ADMIN角色）：查看各缓存区域的命中率
+ */
+@RestController
+@RequestMapping("/api/internal")
+public class CacheStatsController {
+
+    private final CacheStatsService cacheStatsService;
+
+    public CacheStatsController(CacheStatsService cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<List<CacheRegionStats>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getRegionStats());
+    }
+}
@@ -0,0 +1,27 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import org.springframework.stereotype.Component;
+
+/**
+ * 由认证身份获取当前用户
+ */
+@Component
+public class CurrentUserResolver {
+
+    private final UserRepository userRepository;
+
+    public CurrentUserResolver(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * 返回当前用户的User引用，不查询users表，只在真正访问用户字段时才会加载；
+     * 认证身份已由JWT过滤器校验，服务层只需要用户ID做归属检查和外键关联
+     */
+    public User resolve(AuthenticatedUser principal) {
+        return userRepository.getReferenceById(principal.getId());
+    }
+}
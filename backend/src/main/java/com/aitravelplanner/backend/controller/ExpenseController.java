@@ -1,16 +1,36 @@
 package com.aitravelplanner.backend.controller;
 
+import com.aitravelplanner.backend.dto.ExpenseImportReport;
+import com.aitravelplanner.backend.dto.ExpenseParseRequest;
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import com.aitravelplanner.backend.dto.ExpenseQuery;
 import com.aitravelplanner.backend.dto.ExpenseResponse;
+import com.aitravelplanner.backend.dto.PageResponse;
 import com.aitravelplanner.backend.model.User;
-import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.service.ContentVersionService;
+import com.aitravelplanner.backend.service.ExpenseImportService;
+import com.aitravelplanner.backend.service.ExpenseParseService;
 import com.aitravelplanner.backend.service.ExpenseService;
+import com.aitravelplanner.backend.service.ExportService;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -19,12 +39,22 @@ import java.util.UUID;
 @RequestMapping("/api/expenses")
 public class ExpenseController {
 
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final ExpenseService expenseService;
+    private final ContentVersionService contentVersionService;
+    private final ExpenseImportService expenseImportService;
+    private final ExportService exportService;
+    private final ExpenseParseService expenseParseService;
 
-    public ExpenseController(UserRepository userRepository, ExpenseService expenseService) {
-        this.userRepository = userRepository;
+    public ExpenseController(CurrentUserResolver currentUserResolver, ExpenseService expenseService, ContentVersionService contentVersionService,
+                             ExpenseImportService expenseImportService, ExportService exportService,
+                             ExpenseParseService expenseParseService) {
+        this.currentUserResolver = currentUserResolver;
         this.expenseService = expenseService;
+        this.contentVersionService = contentVersionService;
+        this.expenseImportService = expenseImportService;
+        this.exportService = exportService;
+        this.expenseParseService = expenseParseService;
     }
 
     // 添加单个消费记录
@@ -32,12 +62,9 @@ public class ExpenseController {
     public ResponseEntity<ExpenseResponse> addExpense(
             @PathVariable UUID tripId,
             @Valid @RequestBody Map<String, Object> expenseData,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
         
         ExpenseResponse expenseResponse = expenseService.addExpense(tripId, expenseData, user);
         return new ResponseEntity<>(expenseResponse, HttpStatus.CREATED);
@@ -48,28 +75,99 @@ public class ExpenseController {
     public ResponseEntity<List<ExpenseResponse>> addExpensesBatch(
             @PathVariable UUID tripId,
             @Valid @RequestBody List<Map<String, Object>> expensesData,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
         
         List<ExpenseResponse> savedExpenses = expenseService.addExpensesBatch(tripId, expensesData, user);
         return new ResponseEntity<>(savedExpenses, HttpStatus.CREATED);
     }
 
+    // 解析一句话记账（文字或语音识别结果），只返回解析出的字段，不保存
+    @PostMapping("/{tripId}/parse")
+    public ResponseEntity<ExpenseParseResponse> parseExpense(
+            @PathVariable UUID tripId,
+            @Valid @RequestBody ExpenseParseRequest request,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        
+        User user = currentUserResolver.resolve(principal);
+        
+        return ResponseEntity.ok(expenseParseService.parse(tripId, request.getText(), user));
+    }
+
+    // 流式导入CSV：请求体直接为CSV，或以multipart上传文件；逐块写入并提交，返回逐行错误报告
+    @PostMapping("/{tripId}/import")
+    public ResponseEntity<ExpenseImportReport> importExpenses(
+            @PathVariable UUID tripId,
+            @RequestParam(defaultValue = "UTF-8") String charset,
+            @RequestParam(defaultValue = ",") String delimiter,
+            HttpServletRequest request,
+            @AuthenticationPrincipal AuthenticatedUser principal) throws IOException, FileUploadException {
+        
+        User user = currentUserResolver.resolve(principal);
+        
+        Charset csvCharset;
+        try {
+            csvCharset = Charset.forName(charset);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        // 分隔符必须是单个字符（制表符写作tab），且不能是引号或换行
+        if (!"tab".equalsIgnoreCase(delimiter)
+                && (delimiter.length() != 1 || "\"\r\n".indexOf(delimiter.charAt(0)) >= 0)) {
+            return ResponseEntity.badRequest().build();
+        }
+        char csvDelimiter = "tab".equalsIgnoreCase(delimiter) ? '\t' : delimiter.charAt(0);
+        
+        // multipart请求用commons-fileupload的流式API读取文件部分，不落盘也不整体读入内存
+        if (ServletFileUpload.isMultipartContent(request)) {
+            FileItemIterator items = new ServletFileUpload().getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (!item.isFormField()) {
+                    try (InputStream input = item.openStream()) {
+                        return ResponseEntity.ok(expenseImportService.importCsv(tripId, input, csvCharset, csvDelimiter, user));
+                    }
+                }
+            }
+            return ResponseEntity.badRequest().build();
+        }
+        
+        return ResponseEntity.ok(expenseImportService.importCsv(tripId, request.getInputStream(), csvCharset, csvDelimiter, user));
+    }
+
+    // 流式导出CSV：逐行从数据库游标写入响应，格式可直接重新导入
+    @GetMapping("/{tripId}/export")
+    public void exportExpenses(
+            @PathVariable UUID tripId,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            HttpServletResponse response) throws IOException {
+        
+        User user = currentUserResolver.resolve(principal);
+        
+        // 写出内容之前校验权限，响应提交后无法再修改状态码
+        try {
+            exportService.requireTripOwner(tripId, user);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        
+        response.setContentType("text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("expenses-" + tripId + ".csv").build().toString());
+        exportService.writeExpensesCsv(tripId, response.getOutputStream());
+    }
+
     // 更新单个消费记录 - 支持部分字段更新
     @PutMapping("/{tripId}/expense/{expenseId}")
     public ResponseEntity<ExpenseResponse> updateExpense(
             @PathVariable UUID tripId,
             @PathVariable UUID expenseId,
             @RequestBody Map<String, Object> expenseData,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         
-        // 获取当前用户
-        User user = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
         
         ExpenseResponse updatedExpense = expenseService.updateExpense(tripId, expenseId, expenseData, user);
         return ResponseEntity.ok(updatedExpense);
@@ -80,12 +178,9 @@ public class ExpenseController {
     public ResponseEntity<Void> deleteExpense(
             @PathVariable UUID tripId,
             @PathVariable UUID expenseId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
         
         expenseService.deleteExpense(tripId, expenseId, user);
         return ResponseEntity.noContent().build();
@@ -95,15 +190,39 @@ public class ExpenseController {
     @GetMapping("/{tripId}")
     public ResponseEntity<List<ExpenseResponse>> getTripExpenses(
             @PathVariable UUID tripId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        
+        User user = currentUserResolver.resolve(principal);
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        // 消费记录未变化时直接返回304
+        String etag = contentVersionService.expensesEtag(tripId, user);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         
         List<ExpenseResponse> responses = expenseService.getTripExpenses(tripId, user);
-        return ResponseEntity.ok(responses);
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE).body(responses);
+    }
+
+    // 按游标分页查询行程的消费记录，支持日期范围和类别过滤
+    @GetMapping("/{tripId}/page")
+    public ResponseEntity<PageResponse<ExpenseResponse>> getTripExpensesPage(
+            @PathVariable UUID tripId,
+            ExpenseQuery query,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        
+        User user = currentUserResolver.resolve(principal);
+        
+        // ETag按URL区分，相同查询参数下消费记录未变化时直接返回304
+        String etag = contentVersionService.expensesEtag(tripId, user);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE)
+                .body(expenseService.getTripExpensesPage(tripId, query, user));
     }
 
     // 查询单个消费记录详情，此功能（接口）暂时不启用
@@ -111,12 +230,9 @@ public class ExpenseController {
     public ResponseEntity<ExpenseResponse> getExpenseDetails(
             @PathVariable UUID tripId,
             @PathVariable UUID expenseId,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal AuthenticatedUser principal) {
         
-        // 通过用户名获取当前用户
-        String username = userDetails.getUsername();
-        User user = userRepository.findByEmail(username)
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = currentUserResolver.resolve(principal);
         
         ExpenseResponse expenseResponse = expenseService.getExpenseDetails(tripId, expenseId, user);
         return ResponseEntity.ok(expenseResponse);
@@ -2,15 +2,20 @@ package com.aitravelplanner.backend.controller;
 
 import com.aitravelplanner.backend.model.Location;
 import com.aitravelplanner.backend.model.User;
-import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.service.ContentVersionService;
+import com.aitravelplanner.backend.service.ExportService;
 import com.aitravelplanner.backend.service.LocationService;
-import com.aitravelplanner.backend.service.TripService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,14 +24,17 @@ import java.util.UUID;
 public class LocationController {
 
     private final LocationService locationService;
-    private final TripService tripService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final ContentVersionService contentVersionService;
+    private final ExportService exportService;
 
     @Autowired
-    public LocationController(LocationService locationService, TripService tripService, UserRepository userRepository) {
+    public LocationController(LocationService locationService, CurrentUserResolver currentUserResolver,
+                              ContentVersionService contentVersionService, ExportService exportService) {
         this.locationService = locationService;
-        this.tripService = tripService;
-        this.userRepository = userRepository;
+        this.currentUserResolver = currentUserResolver;
+        this.contentVersionService = contentVersionService;
+        this.exportService = exportService;
     }
 
     /**
@@ -35,20 +43,47 @@ public class LocationController {
     @GetMapping("/{tripId}")
     public ResponseEntity<List<Location>> getLocationsByTripId(
             @PathVariable UUID tripId,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        // 通过用户名获取当前用户
-        User user = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        User user = currentUserResolver.resolve(principal);
         
-        // 验证用户是否有权限访问该行程
+        // 验证用户是否有权限访问该行程，位置与行程计划共用同一个ETag
+        String etag;
         try {
-            tripService.getTripById(tripId, user);
+            etag = contentVersionService.tripEtag(tripId, user);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
         List<Location> locations = locationService.findByTripId(tripId);
-        return ResponseEntity.ok(locations);
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE).body(locations);
+    }
+
+    /**
+     * 流式导出行程的位置为GeoJSON，逐行从数据库游标写入响应
+     */
+    @GetMapping("/{tripId}/export")
+    public void exportLocations(
+            @PathVariable UUID tripId,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            HttpServletResponse response) throws IOException {
+        User user = currentUserResolver.resolve(principal);
+
+        // 写出内容之前校验权限，响应提交后无法再修改状态码
+        try {
+            exportService.requireTripOwner(tripId, user);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType("application/geo+json;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("locations-" + tripId + ".geojson").build().toString());
+        exportService.writeLocationsGeoJson(tripId, response.getOutputStream());
     }
 
     /**
@@ -58,19 +93,22 @@ public class LocationController {
     public ResponseEntity<List<Location>> getLocationsByTripIdAndDay(
             @PathVariable UUID tripId,
             @PathVariable Integer day,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        // 通过用户名获取当前用户
-        User user = userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        User user = currentUserResolver.resolve(principal);
         
-        // 验证用户是否有权限访问该行程
+        // 验证用户是否有权限访问该行程，位置与行程计划共用同一个ETag
+        String etag;
         try {
-            tripService.getTripById(tripId, user);
+            etag = contentVersionService.tripEtag(tripId, user);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
         List<Location> locations = locationService.findByTripIdAndDayOrderByOrderIndex(tripId, day);
-        return ResponseEntity.ok(locations);
+        return ResponseEntity.ok().eTag(etag).cacheControl(ContentVersionService.REVALIDATE).body(locations);
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.push.PushHub;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 服务端推送（SSE）
+ * 浏览器的EventSource不能设置请求头，该接口也接受 access_token 查询参数
+ */
+@RestController
+@RequestMapping("/api/push")
+public class PushController {
+
+    private final PushHub pushHub;
+
+    public PushController(PushHub pushHub) {
+        this.pushHub = pushHub;
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@AuthenticationPrincipal AuthenticatedUser principal) {
+        return pushHub.connect(principal.getId());
+    }
+}
@@ -0,0 +1,37 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.dto.EndpointLatencyStats;
+import com.aitravelplanner.backend.monitoring.EndpointLatencyRecorder;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 内部运维接口（仅ADMIN角色）：查看各接口的请求延迟分布
+ */
+@RestController
+@RequestMapping("/api/internal")
+public class RequestStatsController {
+
+    private final EndpointLatencyRecorder endpointLatencyRecorder;
+
+    public RequestStatsController(EndpointLatencyRecorder endpointLatencyRecorder) {
+        this.endpointLatencyRecorder = endpointLatencyRecorder;
+    }
+
+    @GetMapping("/request-stats")
+    public ResponseEntity<List<EndpointLatencyStats>> getRequestStats() {
+        return ResponseEntity.ok(endpointLatencyRecorder.snapshot());
+    }
+
+    // 清空统计，压测开始前调用
+    @DeleteMapping("/request-stats")
+    public ResponseEntity<Void> resetRequestStats() {
+        endpointLatencyRecorder.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
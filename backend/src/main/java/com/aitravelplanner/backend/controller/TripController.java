@@ -1,16 +1,26 @@
 package com.aitravelplanner.backend.controller;
 
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.PageResponse;
+import com.aitravelplanner.backend.dto.PlanDiffResponse;
+import com.aitravelplanner.backend.dto.TripQuery;
 import com.aitravelplanner.backend.dto.TripRequest;
 import com.aitravelplanner.backend.dto.TripResponse;
+import com.aitravelplanner.backend.dto.TripVersionResponse;
 import com.aitravelplanner.backend.model.User;
-import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.service.ContentVersionService;
 import com.aitravelplanner.backend.service.TripService;
+import com.aitravelplanner.backend.service.TripSnapshot;
+import com.aitravelplanner.backend.service.TripVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -21,12 +31,17 @@ import java.util.UUID;
 public class TripController {
 
     private final TripService tripService;
-    private final UserRepository userRepository;
+    private final CurrentUserResolver currentUserResolver;
+    private final ContentVersionService contentVersionService;
+    private final TripVersionService tripVersionService;
 
     @Autowired
-    public TripController(TripService tripService, UserRepository userRepository) {
+    public TripController(TripService tripService, CurrentUserResolver currentUserResolver, ContentVersionService contentVersionService,
+                          TripVersionService tripVersionService) {
         this.tripService = tripService;
-        this.userRepository = userRepository;
+        this.currentUserResolver = currentUserResolver;
+        this.contentVersionService = contentVersionService;
+        this.tripVersionService = tripVersionService;
     }
 
     /**
@@ -35,30 +50,62 @@ public class TripController {
     @PostMapping
     public ResponseEntity<TripResponse> createTrip(
             @Valid @RequestBody TripRequest tripRequest,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        User user = getUserFromUserDetails(userDetails);
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
         TripResponse tripResponse = tripService.createTrip(tripRequest, user);
         return new ResponseEntity<>(tripResponse, HttpStatus.CREATED);
     }
 
     /**
-     * 获取用户的所有行程
+     * 获取用户的所有行程，view=summary时只返回摘要（不含每日行程计划）
      */
     @GetMapping
-    public ResponseEntity<List<TripResponse>> getTrips(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = getUserFromUserDetails(userDetails);
-        List<TripResponse> responses = tripService.getTripsByUser(user);
+    public ResponseEntity<List<TripResponse>> getTrips(
+            @RequestParam(value = "view", required = false) String view,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        List<TripResponse> responses = "summary".equalsIgnoreCase(view)
+                ? tripService.getTripSummariesByUser(user)
+                : tripService.getTripsByUser(user);
         return ResponseEntity.ok(responses);
     }
 
+    /**
+     * 按游标分页获取用户的行程，支持过滤和排序
+     */
+    @GetMapping("/page")
+    public ResponseEntity<PageResponse<TripResponse>> getTripsPage(
+            TripQuery query,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        return ResponseEntity.ok(tripService.getTripsPage(user, query));
+    }
+
     /**
      * 根据ID获取行程
+     * ETag与If-None-Match一致时返回304；否则直接输出预先序列化的快照字节，客户端支持时返回gzip压缩版本
      */
     @GetMapping("/{id}")
-    public ResponseEntity<TripResponse> getTripById(@PathVariable UUID id, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = getUserFromUserDetails(userDetails);
-        TripResponse tripResponse = tripService.getTripById(id, user);
-        return ResponseEntity.ok(tripResponse);
+    public ResponseEntity<byte[]> getTripById(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            WebRequest webRequest) {
+        User user = currentUserResolver.resolve(principal);
+        if (webRequest.checkNotModified(contentVersionService.tripEtag(id, user))) {
+            return null;
+        }
+        TripSnapshot snapshot = tripService.getTripSnapshot(id, user);
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(ContentVersionService.tripEtag(snapshot.getPlanVersion(), snapshot.getUpdatedAtMillis()))
+                .cacheControl(ContentVersionService.REVALIDATE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (snapshot.getGzip() != null && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return builder.body(snapshot.getJson());
     }
 
     /**
@@ -68,8 +115,8 @@ public class TripController {
     public ResponseEntity<TripResponse> updateTrip(
             @PathVariable UUID id,
             @Valid @RequestBody TripRequest tripRequest,
-            @AuthenticationPrincipal UserDetails userDetails) {
-        User user = getUserFromUserDetails(userDetails);
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
         TripResponse tripResponse = tripService.updateTrip(id, tripRequest, user);
         return ResponseEntity.ok(tripResponse);
     }
@@ -78,18 +125,58 @@ public class TripController {
      * 删除行程
      */
     @DeleteMapping("/{tripId}")
-    public ResponseEntity<Void> deleteTrip(@PathVariable UUID tripId, @AuthenticationPrincipal UserDetails userDetails) {
-        User user = getUserFromUserDetails(userDetails);
+    public ResponseEntity<Void> deleteTrip(@PathVariable UUID tripId, @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
         // 调用服务层删除行程，该方法会级联删除trip_preferences、locations、expenses表中的相关记录
         tripService.deleteTrip(tripId, user);
         return ResponseEntity.noContent().build();
     }
-    
+
+    /**
+     * 行程计划的版本列表，最新的在前
+     */
+    @GetMapping("/{id}/versions")
+    public ResponseEntity<List<TripVersionResponse>> getVersions(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        return ResponseEntity.ok(tripVersionService.listVersions(id, user));
+    }
+
+    /**
+     * 某个版本的完整行程计划
+     */
+    @GetMapping("/{id}/versions/{version}")
+    public ResponseEntity<List<DayPlanDTO>> getVersion(
+            @PathVariable UUID id,
+            @PathVariable int version,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        return ResponseEntity.ok(tripVersionService.getPlan(id, version, user));
+    }
+
     /**
-     * 从UserDetails中获取User实体
+     * 两个版本之间按天的新增、删除、移动和修改的地点
      */
-    private User getUserFromUserDetails(UserDetails userDetails) {
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @GetMapping("/{id}/versions/{from}/diff/{to}")
+    public ResponseEntity<PlanDiffResponse> diffVersions(
+            @PathVariable UUID id,
+            @PathVariable int from,
+            @PathVariable int to,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        return ResponseEntity.ok(tripVersionService.diff(id, from, to, user));
+    }
+
+    /**
+     * 把行程计划恢复为某个版本
+     */
+    @PostMapping("/{id}/versions/{version}/restore")
+    public ResponseEntity<TripResponse> restoreVersion(
+            @PathVariable UUID id,
+            @PathVariable int version,
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+        User user = currentUserResolver.resolve(principal);
+        return ResponseEntity.ok(tripService.restoreVersion(id, version, user));
     }
 }
\ No newline at end of file
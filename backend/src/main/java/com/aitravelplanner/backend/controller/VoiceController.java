@@ -0,0 +1,148 @@
+package com.aitravelplanner.backend.controller;
+
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.service.ExpenseParseService;
+import com.aitravelplanner.backend.service.TripAccessGuard;
+import com.aitravelplanner.backend.voice.VoiceTranscriptionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.UUID;
+
+/**
+ * 语音输入
+ * 音频以分块传输的请求体（或multipart文件部分）上传，边上传边识别；
+ * 响应为NDJSON，识别出的部分结果逐行写回，最后一行为最终结果（记账时为解析出的消费信息）
+ */
+@RestController
+@RequestMapping("/api/voice")
+public class VoiceController {
+
+    private static final String TARGET_TEXT = "text";
+    private static final String TARGET_EXPENSE = "expense";
+
+    private final VoiceTranscriptionService voiceTranscriptionService;
+    private final ExpenseParseService expenseParseService;
+    private final TripAccessGuard tripAccessGuard;
+    private final CurrentUserResolver currentUserResolver;
+    private final ObjectMapper objectMapper;
+
+    public VoiceController(VoiceTranscriptionService voiceTranscriptionService, ExpenseParseService expenseParseService,
+                           TripAccessGuard tripAccessGuard, CurrentUserResolver currentUserResolver, ObjectMapper objectMapper) {
+        this.voiceTranscriptionService = voiceTranscriptionService;
+        this.expenseParseService = expenseParseService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.currentUserResolver = currentUserResolver;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping("/transcribe")
+    public void transcribe(
+            @RequestParam(defaultValue = TARGET_TEXT) String target,
+            @RequestParam(required = false) UUID tripId,
+            @RequestParam(defaultValue = "16000") int sampleRate,
+            @RequestParam(defaultValue = "zh-CN") String language,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException, FileUploadException {
+
+        User user = currentUserResolver.resolve(principal);
+
+        // 写出内容之前校验参数和权限，响应提交后无法再修改状态码
+        if (!TARGET_TEXT.equals(target) && !TARGET_EXPENSE.equals(target)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unsupported target: " + target);
+            return;
+        }
+        if (TARGET_EXPENSE.equals(target)) {
+            if (tripId == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "tripId is required for expense input");
+                return;
+            }
+            try {
+                tripAccessGuard.requireOwner(tripId, user);
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+
+        response.setContentType("application/x-ndjson;charset=UTF-8");
+        Writer writer = response.getWriter();
+
+        // multipart请求用commons-fileupload的流式API读取第一个文件部分，不落盘
+        if (ServletFileUpload.isMultipartContent(request)) {
+            FileItemIterator items = new ServletFileUpload().getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemStream item = items.next();
+                if (!item.isFormField()) {
+                    try (InputStream input = item.openStream()) {
+                        transcribe(input, item.getContentType(), sampleRate, language, target, tripId, user, writer);
+                    }
+                    return;
+                }
+            }
+            writeEvent(writer, event("error").put("message", "No audio file in request"));
+            return;
+        }
+        transcribe(request.getInputStream(), request.getContentType(), sampleRate, language, target, tripId, user, writer);
+    }
+
+    private void transcribe(InputStream audio, String contentType, int sampleRate, String language,
+                            String target, UUID tripId, User user, Writer writer) throws IOException {
+        String text;
+        try {
+            text = voiceTranscriptionService.transcribe(audio, contentType, sampleRate, language,
+                    partial -> writeEventUnchecked(writer, event("partial").put("text", partial)));
+        } catch (UncheckedIOException e) {
+            // 客户端断开
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            writeEvent(writer, event("error").put("message", e.getMessage()));
+            return;
+        }
+        writeEvent(writer, event("final").put("text", text));
+
+        if (TARGET_EXPENSE.equals(target) && !text.isEmpty()) {
+            ExpenseParseResponse expense = expenseParseService.parse(tripId, text, user);
+            ObjectNode node = event("expense");
+            node.set("expense", objectMapper.valueToTree(expense));
+            writeEvent(writer, node);
+        }
+    }
+
+    private ObjectNode event(String type) {
+        return objectMapper.createObjectNode().put("type", type);
+    }
+
+    private void writeEvent(Writer writer, ObjectNode event) throws IOException {
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.write('\n');
+        // 每行立即发送，客户端边说边看到识别结果
+        writer.flush();
+    }
+
+    private void writeEventUnchecked(Writer writer, ObjectNode event) {
+        try {
+            writeEvent(writer, event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
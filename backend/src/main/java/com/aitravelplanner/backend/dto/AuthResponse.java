@@ -6,9 +6,16 @@ import lombok.Data;
 public class AuthResponse {
     private String token;
     private String email;
+    private String refreshToken;
     
     public AuthResponse(String token, String email) {
         this.token = token;
         this.email = email;
     }
-}
\ No newline at end of file
+    
+    public AuthResponse(String token, String email, String refreshToken) {
+        this.token = token;
+        this.email = email;
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,58 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预算分析：按类别、按日期的消费汇总，逐日燃尽和行程结束时的预计总花费
+ * 各币种消费按当前汇率折算为行程预算货币
+ */
+@Data
+public class BudgetBreakdownResponse {
+    private String currency;                // 预算货币，以下金额均以该货币表示
+    private BigDecimal totalBudget;         // 总预算
+    private BigDecimal spent;               // 已花费金额
+    private BigDecimal dailyBudget;         // 每日预算（总预算/行程天数）
+    private BigDecimal projectedTotal;      // 按已过天数的日均花费推算的行程总花费
+    private boolean projectedOverspend;     // 预计是否超支
+    private BigDecimal undatedSpent;        // 未填写消费日期的金额，计入spent但不计入逐日数据
+    private List<String> unconvertedCurrencies = new ArrayList<>();   // 缺少汇率、未计入统计的币种
+    private List<CategoryTotal> byCategory = new ArrayList<>();   // 按金额从高到低
+    private List<DayTotal> byDate = new ArrayList<>();            // 按日期升序，只包含有消费的日期
+    private List<BurnDownPoint> burnDown = new ArrayList<>();     // 行程每一天一项
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategoryTotal {
+        private String category;
+        private BigDecimal amount;
+        private long count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DayTotal {
+        private LocalDate date;
+        private BigDecimal amount;
+        private long count;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BurnDownPoint {
+        private LocalDate date;
+        private BigDecimal spent;               // 当天花费
+        private BigDecimal cumulativeSpent;     // 截至当天的累计花费（含行程开始前的消费）
+        private BigDecimal cumulativeBudget;    // 截至当天按每日预算计划的累计额度
+        private BigDecimal remaining;           // 总预算减累计花费
+    }
+}
@@ -2,11 +2,15 @@ package com.aitravelplanner.backend.dto;
 
 import lombok.Data;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 public class BudgetResponse {
+    private String currency;          // 预算货币，以下金额均以该货币表示
     private BigDecimal totalBudget;   // 总预算
-    private BigDecimal spent;         // 已花费金额
+    private BigDecimal spent;         // 已花费金额（各币种按当前汇率折算）
     private BigDecimal remaining;     // 剩余预算
     private boolean overspend;        // 是否超支
-}
\ No newline at end of file
+    private List<String> unconvertedCurrencies = new ArrayList<>();   // 缺少汇率、未计入spent的币种
+}
@@ -0,0 +1,17 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+/**
+ * 单个缓存区域的命中统计
+ */
+@Data
+public class CacheRegionStats {
+    private String region;      // 区域名称
+    private String type;        // hibernate（二级缓存）或 spring（应用缓存）
+    private long hits;          // 命中次数
+    private long misses;        // 未命中次数
+    private long puts;          // 写入次数，-1表示未知
+    private long size;          // 当前条目数，-1表示未知
+    private double hitRatio;    // 命中率，0~1
+}
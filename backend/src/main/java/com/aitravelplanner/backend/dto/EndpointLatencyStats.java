@@ -0,0 +1,17 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+/**
+ * 单个接口的请求延迟分布
+ */
+@Data
+public class EndpointLatencyStats {
+    private String endpoint;    // 请求方法和路由模板
+    private long count;         // 请求次数
+    private double meanMs;      // 平均值，毫秒
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+}
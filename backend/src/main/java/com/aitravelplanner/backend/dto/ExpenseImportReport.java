@@ -0,0 +1,30 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV导入结果
+ * 无效的行被跳过并记录在errors中（最多保留maxErrors条），其余行照常导入
+ */
+@Data
+public class ExpenseImportReport {
+    private long rowsRead;              // 读取的数据行数（不含表头和空行）
+    private long imported;              // 成功导入的行数
+    private long failed;                // 被跳过的行数
+    private boolean errorsTruncated;    // 错误过多时只保留前面的部分
+    private String abortReason;         // 导入中途终止的原因，正常完成时为null
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;      // CSV中的行号，从1开始
+        private String message;
+    }
+}
@@ -0,0 +1,13 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Size;
+
+@Data
+public class ExpenseParseRequest {
+    @NotBlank(message = "Text is required")
+    @Size(max = 200, message = "Text must be at most 200 characters")
+    private String text;    // 一句话记账，如“打车 35 元”、“dinner 120 yen yesterday”
+}
@@ -0,0 +1,24 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 一句话记账的解析结果，只返回解析出的字段，不保存消费记录
+ * 客户端确认或修改后再调用添加消费记录接口
+ */
+@Data
+public class ExpenseParseResponse {
+    public static final String SOURCE_RULES = "rules";
+    public static final String SOURCE_LLM = "llm";
+
+    private BigDecimal amount;      // 未识别出金额时为null
+    private String currency;        // 未写明时为行程的预算货币
+    private String category;        // 餐饮、住宿、交通、景点、购物、娱乐、其他
+    private LocalDate expenseDate;  // 未写明时为当天
+    private String comment;         // 去掉金额、货币和日期后的文字
+    private double confidence;      // 0到1，规则解析的置信度
+    private String source;          // rules：本地规则；llm：置信度不足时由大模型解析
+}
@@ -0,0 +1,24 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 消费记录分页查询参数
+ */
+@Data
+public class ExpenseQuery {
+    private String cursor;          // 上一页返回的nextCursor
+    private Integer limit;          // 每页数量，默认20，最大100
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;         // 消费日期下限（包含）
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;           // 消费日期上限（包含）
+
+    private String category;        // 消费类别
+    private String direction = "desc"; // 按创建时间排序的方向：asc 或 desc
+}
@@ -0,0 +1,20 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 基于游标（keyset）的分页响应
+ * nextCursor为null表示已经是最后一页
+ */
+@Data
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public PageResponse(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
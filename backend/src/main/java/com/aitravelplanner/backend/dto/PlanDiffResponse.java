@@ -0,0 +1,44 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 两个行程计划版本之间的差异，按天列出新增、删除、移动和修改的地点
+ * 每个地点只出现一次：换了天数或在当天的相对顺序改变时记为移动（同时修改的字段见changedFields），
+ * 否则有字段变化时记为修改
+ */
+@Data
+public class PlanDiffResponse {
+    private int fromVersion;
+    private int toVersion;
+    private int added;
+    private int removed;
+    private int moved;
+    private int edited;
+    private int unchanged;
+    private List<DayDiff> days = new ArrayList<>();   // 只包含有变化的天，按天数升序
+
+    @Data
+    public static class DayDiff {
+        private int day;   // 新增、移动、修改按新计划中的天，删除按原计划中的天
+        private List<StopChange> added = new ArrayList<>();
+        private List<StopChange> removed = new ArrayList<>();
+        private List<StopChange> moved = new ArrayList<>();
+        private List<StopChange> edited = new ArrayList<>();
+    }
+
+    @Data
+    public static class StopChange {
+        private String name;
+        private Integer fromDay;        // 原计划中的天和当天顺序（从1开始），新增的地点为null
+        private Integer fromIndex;
+        private Integer toDay;          // 新计划中的天和当天顺序，删除的地点为null
+        private Integer toIndex;
+        private List<String> changedFields = new ArrayList<>();   // name、lng、lat、description、type
+        private LocationDTO before;     // 删除和有字段变化时为原地点
+        private LocationDTO after;      // 新增和有字段变化时为新地点
+    }
+}
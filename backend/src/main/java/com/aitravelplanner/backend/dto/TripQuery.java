@@ -0,0 +1,26 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * 行程分页查询参数
+ */
+@Data
+public class TripQuery {
+    private String cursor;          // 上一页返回的nextCursor
+    private Integer limit;          // 每页数量，默认20，最大100
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;         // 行程与该日期之后有交集
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;           // 行程与该日期之前有交集
+
+    private String destination;     // 目的地（模糊匹配，忽略大小写）
+    private String sort = "createdAt"; // 排序字段：createdAt 或 startDate
+    private String direction = "desc"; // 排序方向：asc 或 desc
+    private String view;            // summary时不返回每日行程计划
+}
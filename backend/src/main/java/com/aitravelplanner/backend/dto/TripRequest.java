@@ -24,6 +24,9 @@ public class TripRequest {
     @Min(value = 0, message = "预算不能为负数")
     private Double budgetTotal;
     
+    // 预算货币（ISO 4217代码），不填时为CNY
+    private String budgetCurrency;
+    
     // 同行人数
     @Min(value = 0, message = "同行人数不能为负数")
     private Integer companionCount = 0;
@@ -17,6 +17,7 @@ public class TripResponse {
     private LocalDate startDate;
     private LocalDate endDate;
     private BigDecimal budgetTotal;
+    private String budgetCurrency;
     private Integer companionCount;
     private List<String> preferences;
     private List<DayPlanDTO> dayPlans;
@@ -0,0 +1,19 @@
+package com.aitravelplanner.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 行程计划版本列表项，不包含计划内容
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripVersionResponse {
+    private Integer version;      // 版本号，行程内从1递增，最大的为当前计划
+    private String description;   // 版本来源，如生成、恢复
+    private Instant createdAt;
+}
@@ -0,0 +1,32 @@
+package com.aitravelplanner.backend.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计丢弃事件数的异步Appender
+ * 配置neverBlock后队列满时直接丢弃，不阻塞业务线程；队列剩余容量低于discardingThreshold时丢弃INFO及以下级别。
+ * 丢弃数通过logging.async.dropped指标导出
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // 与AsyncAppenderBase的丢弃判断一致，在入队前判断；并发下为近似值
+        int remaining = getRemainingCapacity();
+        boolean dropped = (remaining < getDiscardingThreshold() && isDiscardable(event))
+                || (isNeverBlock() && remaining == 0);
+        super.append(event);
+        if (dropped) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+}
@@ -0,0 +1,20 @@
+package com.aitravelplanner.backend.logging;
+
+/**
+ * 日志中大段内容（如LLM返回的JSON）的截断
+ */
+public final class LogPayloads {
+
+    private LogPayloads() {
+    }
+
+    /**
+     * 超过maxChars时只保留开头部分，并注明原始长度
+     */
+    public static String truncate(String payload, int maxChars) {
+        if (payload == null || payload.length() <= maxChars) {
+            return payload;
+        }
+        return payload.substring(0, maxChars) + "...(truncated, " + payload.length() + " chars)";
+    }
+}
@@ -0,0 +1,23 @@
+package com.aitravelplanner.backend.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * 导出异步日志队列的丢弃数和采样过滤数
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("logging.async.dropped", CountingAsyncAppender.class, c -> CountingAsyncAppender.getDroppedCount())
+                .description("Log events dropped because the async queue was full")
+                .register(registry);
+        FunctionCounter.builder("logging.sampled.out", SamplingTurboFilter.class, c -> SamplingTurboFilter.getSampledOutCount())
+                .description("Log events suppressed by per-logger sampling")
+                .register(registry);
+    }
+}
@@ -0,0 +1,64 @@
+package com.aitravelplanner.backend.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按logger采样INFO及以下级别的日志
+ * 配置的logger（按名称前缀匹配）每everyN条只输出一条，WARN和ERROR始终输出。
+ * 用于每个请求都会打印的调试信息，如JWT过滤器
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final AtomicLong SAMPLED_OUT = new AtomicLong();
+
+    private final List<String> loggerNames = new ArrayList<>();
+    private final AtomicLong counter = new AtomicLong();
+    private int everyN = 100;
+
+    public void addLoggerName(String loggerName) {
+        loggerNames.add(loggerName.trim());
+    }
+
+    public void setEveryN(int everyN) {
+        this.everyN = Math.max(1, everyN);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format为null时是isXxxEnabled()判断，不参与采样
+        if (format == null || level == null || level.isGreaterOrEqual(Level.WARN) || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        // 低于logger有效级别的事件本来就不会输出，不计数；
+        // 直接比较有效级别而不调用isEnabledFor，后者会再次经过TurboFilter链
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        if (counter.getAndIncrement() % everyN == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        SAMPLED_OUT.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    private boolean matches(String name) {
+        for (String loggerName : loggerNames) {
+            if (name.startsWith(loggerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static long getSampledOutCount() {
+        return SAMPLED_OUT.get();
+    }
+}
@@ -0,0 +1,28 @@
+package com.aitravelplanner.backend.model;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 汇率表：1单位该货币折合多少基准货币（currency.base，默认CNY）
+ * 由ExchangeRateTable定期加载到内存，基准货币本身不需要记录
+ */
+@Entity
+@Table(name = "exchange_rates")
+@Data
+public class ExchangeRate {
+    @Id
+    @Column(length = 3)
+    private String currency;
+
+    @Column(nullable = false, precision = 24, scale = 12)
+    private BigDecimal rateToBase;
+
+    private Instant updatedAt = Instant.now();
+}
@@ -19,11 +19,16 @@ public class Location {
     private UUID id;
 
     // 关联到行程
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "trip_id")
     @JsonIgnore
     private Trip trip;
 
+    // 只读的外键列，批量加载时按行程分组无需初始化trip代理
+    @Column(name = "trip_id", insertable = false, updatable = false)
+    @JsonIgnore
+    private UUID tripId;
+
     private String name;
     private Double lng;
     private Double lat;
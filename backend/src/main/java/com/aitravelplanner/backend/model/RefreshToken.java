@@ -0,0 +1,43 @@
+package com.aitravelplanner.backend.model;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 刷新token，只保存token的SHA-256摘要，不保存原文
+ * 每次刷新都会吊销旧token并在同一家族中签发新token；已吊销的token被再次使用时吊销整个家族
+ */
+@Entity
+@Table(name = "refresh_tokens")
+@Data
+public class RefreshToken {
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID userId;
+
+    // 同一次登录轮换出来的token属于同一家族
+    @Column(nullable = false)
+    private UUID familyId;
+
+    @Column(nullable = false, unique = true, length = 32)
+    private byte[] tokenHash;
+
+    // 签发时用户的token版本，用户吊销全部token后该刷新token也随之失效
+    @Column(nullable = false)
+    private Integer tokenVersion;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    private boolean revoked = false;
+
+    private Instant createdAt = Instant.now();
+}
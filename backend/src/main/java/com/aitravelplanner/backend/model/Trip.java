@@ -8,10 +8,17 @@ import java.util.UUID;
 import javax.persistence.*;
 
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Where;
 
 @Entity
 @Table(name = "trips")
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "trips")
+// 已删除（等待后台清理）的行程不出现在任何JPQL/Criteria查询中
+@Where(clause = "deleted_at is null")
 public class Trip {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -29,15 +36,26 @@ public class Trip {
     
     private BigDecimal budgetTotal;
     
+    // 预算货币，预算统计时各币种消费按当前汇率折算为该货币
+    @Column(length = 3, nullable = false, columnDefinition = "varchar(3) not null default 'CNY'")
+    private String budgetCurrency = "CNY";
+    
     // 同行人数
     private Integer companionCount;
     
     // 旅行偏好（列表形式）
     @ElementCollection
     @CollectionTable(name = "trip_preferences")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "trip-preferences")
     @Column(name = "preference")
     private List<String> preferences;
     
+    // 行程计划版本，每次保存新生成的位置时递增
+    private Integer planVersion = 0;
+    
     private Instant createdAt = Instant.now();
     private Instant updatedAt;
+    
+    // 删除时间，非空表示已删除，位置、消费记录等由TripReaper分批清理
+    private Instant deletedAt;
 }
\ No newline at end of file
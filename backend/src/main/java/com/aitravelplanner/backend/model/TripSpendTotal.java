@@ -0,0 +1,42 @@
+package com.aitravelplanner.backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * 行程按货币的已花费总额，每个 (行程, 货币) 一行，以原币金额保存
+ * 随消费记录的增删改同步维护，预算查询时再按当前汇率折算为行程预算货币
+ */
+@Entity
+@Table(name = "trip_spend_totals")
+@IdClass(TripSpendTotal.Key.class)
+@Data
+public class TripSpendTotal {
+    @Id
+    @Column(name = "trip_id")
+    private UUID tripId;
+
+    @Id
+    private String currency;
+
+    @Column(nullable = false)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private UUID tripId;
+        private String currency;
+    }
+}
@@ -0,0 +1,25 @@
+package com.aitravelplanner.backend.model;
+
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.UUID;
+
+/**
+ * 行程的统计和版本计数，每个行程一行（按货币的已花费总额见TripSpendTotal）
+ * 频繁更新的计数放在单独的表中，不进入二级缓存，也不会使缓存中的Trip失效
+ */
+@Entity
+@Table(name = "trip_stats")
+@Data
+public class TripStats {
+    @Id
+    @Column(name = "trip_id")
+    private UUID tripId;
+
+    // 消费记录版本，每次新增、修改、删除消费记录时递增，用于生成ETag
+    private Long expenseVersion = 0L;
+}
@@ -6,6 +6,10 @@ import javax.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.Type;
 
+/**
+ * 行程计划的历史版本，每次保存新计划时写入一条，版本号在行程内从1递增
+ * 关键帧保存完整计划，其余版本只保存相对上一版本的JSON Patch，读取时从最近的关键帧依次应用
+ */
 @Entity
 @Table(name = "trip_versions")
 @Data
@@ -21,9 +25,13 @@ public class TripVersion {
     
     private Integer version;
 
+    // 关键帧为List<DayPlanDTO>的JSON，否则为JSON Patch
     @Type(type = "jsonb")
     @Column(columnDefinition = "jsonb")
     private String planData;
+
+    @Column(nullable = false)
+    private boolean keyframe = true;
     
     private String description; // Optional description for this version
     private Instant createdAt = Instant.now();
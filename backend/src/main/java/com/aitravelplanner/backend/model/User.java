@@ -4,10 +4,14 @@ import java.time.Instant;
 import java.util.UUID;
 import javax.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "users")
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
@@ -20,6 +24,9 @@ public class User {
     @Column(nullable = false)
     private String passwordHash;
     
+    // token版本，递增后该用户之前签发的所有JWT失效
+    private Integer tokenVersion = 0;
+    
     private Instant createdAt = Instant.now();
     
     private Instant updatedAt;
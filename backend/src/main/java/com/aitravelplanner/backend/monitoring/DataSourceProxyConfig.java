@@ -0,0 +1,54 @@
+package com.aitravelplanner.backend.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * 用datasource-proxy包装数据源，统计JPA和JdbcTemplate执行的每条语句
+ * 后置处理器最后执行，Hikari连接池指标仍绑定在原始数据源上（代理支持unwrap）
+ */
+@Configuration
+public class DataSourceProxyConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourceProxyBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                     Environment environment) {
+        return new DataSourceProxyBeanPostProcessor(meterRegistry, environment);
+    }
+
+    private static class DataSourceProxyBeanPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Environment environment;
+
+        DataSourceProxyBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+            this.meterRegistry = meterRegistry;
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource) || bean instanceof net.ttddyy.dsproxy.support.ProxyDataSource) {
+                return bean;
+            }
+            long slowQueryMs = environment.getProperty("monitoring.db.slow-query-ms", Long.class, 200L);
+            return ProxyDataSourceBuilder.create((DataSource) bean)
+                    .name(beanName)
+                    .listener(new QueryMetricsListener(meterRegistry, slowQueryMs))
+                    .build();
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.aitravelplanner.backend.monitoring;
+
+import com.aitravelplanner.backend.dto.EndpointLatencyStats;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按接口记录请求延迟的HdrHistogram
+ * 接口按请求方法和路由模板区分（如 GET /api/trips/{tripId}），数量有限；以微秒记录，三位有效数字
+ */
+@Component
+public class EndpointLatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    public void record(String endpoint, long nanos) {
+        long micros = Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_MICROS);
+        histograms.computeIfAbsent(endpoint, key -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3))
+                .recordValue(micros);
+    }
+
+    public List<EndpointLatencyStats> snapshot() {
+        List<EndpointLatencyStats> result = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue().copy();
+            EndpointLatencyStats stats = new EndpointLatencyStats();
+            stats.setEndpoint(entry.getKey());
+            stats.setCount(histogram.getTotalCount());
+            stats.setMeanMs(histogram.getMean() / 1000.0);
+            stats.setP50Ms(histogram.getValueAtPercentile(50) / 1000.0);
+            stats.setP95Ms(histogram.getValueAtPercentile(95) / 1000.0);
+            stats.setP99Ms(histogram.getValueAtPercentile(99) / 1000.0);
+            stats.setMaxMs(histogram.getMaxValue() / 1000.0);
+            result.add(stats);
+        }
+        result.sort(Comparator.comparing(EndpointLatencyStats::getEndpoint));
+        return result;
+    }
+
+    /**
+     * 清空所有直方图，压测开始前调用
+     */
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
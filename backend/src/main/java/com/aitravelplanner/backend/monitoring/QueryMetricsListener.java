@@ -0,0 +1,95 @@
+package com.aitravelplanner.backend.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JDBC语句级别的统计
+ * 每条语句计入当前请求的sql阶段（用于发现N+1），按语句类型记录耗时，
+ * 超过阈值的慢查询输出SQL和参数类型，参数值一律不记录
+ */
+@Slf4j
+public class QueryMetricsListener implements QueryExecutionListener {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final long slowQueryMs;
+
+    public QueryMetricsListener(ObjectProvider<MeterRegistry> meterRegistry, long slowQueryMs) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryMs = slowQueryMs;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsedMs = execInfo.getElapsedTime();
+        RequestTiming.record(RequestTiming.SQL, TimeUnit.MILLISECONDS.toNanos(elapsedMs));
+
+        // MeterRegistry在数据源之后创建，首次执行语句时再获取
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Timer.builder("db.statements")
+                    .description("JDBC statement execution time")
+                    .tag("type", statementType(queryInfoList))
+                    .tag("batch", String.valueOf(execInfo.isBatch()))
+                    .register(registry)
+                    .record(elapsedMs, TimeUnit.MILLISECONDS);
+        }
+
+        if (elapsedMs >= slowQueryMs) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                log.warn("Slow query ({} ms, batch size {}): {} params={}", elapsedMs, execInfo.getBatchSize(),
+                        queryInfo.getQuery(), redactedParameters(queryInfo));
+            }
+        }
+    }
+
+    private static String statementType(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty()) {
+            return "other";
+        }
+        String query = queryInfoList.get(0).getQuery().trim();
+        int end = query.indexOf(' ');
+        String keyword = (end > 0 ? query.substring(0, end) : query).toLowerCase(Locale.ROOT);
+        switch (keyword) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+                return keyword;
+            default:
+                return "other";
+        }
+    }
+
+    /**
+     * 只输出参数类型，例如 [UUID, String, null]；批量语句只输出第一组
+     */
+    private static String redactedParameters(QueryInfo queryInfo) {
+        List<List<ParameterSetOperation>> parametersList = queryInfo.getParametersList();
+        if (parametersList.isEmpty()) {
+            return "[]";
+        }
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (ParameterSetOperation operation : parametersList.get(0)) {
+            Object[] args = operation.getArgs();
+            Object value = args.length > 1 ? args[1] : null;
+            joiner.add(value != null ? value.getClass().getSimpleName() : "null");
+        }
+        return joiner.toString();
+    }
+}
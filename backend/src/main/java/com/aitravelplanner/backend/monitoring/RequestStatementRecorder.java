@@ -0,0 +1,38 @@
+package com.aitravelplanner.backend.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按接口记录每个请求执行的JDBC语句数
+ * 语句数超过阈值时告警，用于发现N+1查询
+ */
+@Component
+@Slf4j
+public class RequestStatementRecorder {
+
+    private final MeterRegistry meterRegistry;
+    private final int warnThreshold;
+
+    public RequestStatementRecorder(MeterRegistry meterRegistry,
+                                    @Value("${monitoring.db.statements-per-request-warn:20}") int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    public void record(String endpoint, int statements) {
+        DistributionSummary.builder("http.server.requests.statements")
+                .description("JDBC statements executed per HTTP request")
+                .tag("uri", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statements);
+
+        if (statements > warnThreshold) {
+            log.warn("Possible N+1 query pattern: {} executed {} statements", endpoint, statements);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.aitravelplanner.backend.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 单个请求各阶段的耗时累计
+ * 绑定到处理请求的线程上，由RequestTimingFilter创建和解绑；未绑定时所有记录调用都是空操作
+ */
+public final class RequestTiming {
+
+    public static final String AUTH = "auth";       // JWT过滤器
+    public static final String DB = "db";           // Repository调用
+    public static final String APP = "app";         // 服务层，不含其中的Repository耗时
+    public static final String SERIALIZE = "ser";   // JSON序列化
+    public static final String SQL = "sql";         // JDBC语句，次数即本请求执行的语句数
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+
+    private static final class Phase {
+        long nanos;
+        int count;
+        int depth;
+    }
+
+    static void bind(RequestTiming timing) {
+        CURRENT.set(timing);
+    }
+
+    static void unbind() {
+        CURRENT.remove();
+    }
+
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 累计一段已结束的阶段耗时
+     */
+    public static void record(String phase, long nanos) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.add(phase, nanos);
+        }
+    }
+
+    /**
+     * 进入阶段，返回是否为最外层；嵌套调用只由最外层计时，避免重复累计
+     */
+    synchronized boolean enter(String phase) {
+        Phase p = phase(phase);
+        return p.depth++ == 0;
+    }
+
+    synchronized void exit(String phase, long nanos, boolean outermost) {
+        Phase p = phase(phase);
+        p.depth--;
+        if (outermost) {
+            p.nanos += nanos;
+            p.count++;
+        }
+    }
+
+    synchronized void add(String phase, long nanos) {
+        Phase p = phase(phase);
+        p.nanos += nanos;
+        p.count++;
+    }
+
+    public synchronized long getNanos(String phase) {
+        Phase p = phases.get(phase);
+        return p != null ? p.nanos : 0L;
+    }
+
+    public synchronized int getCount(String phase) {
+        Phase p = phases.get(phase);
+        return p != null ? p.count : 0;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * 生成Server-Timing头，例如：auth;dur=0.41, db;dur=3.20;desc="2 calls", total;dur=5.87
+     */
+    synchronized String toServerTimingHeader(long totalNanos) {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, Phase> entry : phases.entrySet()) {
+            Phase p = entry.getValue();
+            if (p.count == 0) {
+                continue;
+            }
+            header.append(entry.getKey()).append(";dur=").append(millis(p.nanos));
+            if (p.count > 1) {
+                header.append(";desc=\"").append(p.count).append(" calls\"");
+            }
+            header.append(", ");
+        }
+        header.append("total;dur=").append(millis(totalNanos));
+        return header.toString();
+    }
+
+    private Phase phase(String name) {
+        Phase p = phases.get(name);
+        if (p == null) {
+            p = new Phase();
+            phases.put(name, p);
+        }
+        return p;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+}
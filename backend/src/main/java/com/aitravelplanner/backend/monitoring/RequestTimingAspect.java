@@ -0,0 +1,50 @@
+package com.aitravelplanner.backend.monitoring;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * 统计请求中Repository调用和服务层的耗时
+ * 服务层耗时扣除其中的Repository耗时，只反映映射、组装等应用逻辑本身
+ */
+@Aspect
+@Component
+public class RequestTimingAspect {
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return joinPoint.proceed();
+        }
+
+        boolean outermost = timing.enter(RequestTiming.DB);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timing.exit(RequestTiming.DB, System.nanoTime() - start, outermost);
+        }
+    }
+
+    @Around("execution(* com.aitravelplanner.backend.service..*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestTiming timing = RequestTiming.current();
+        if (timing == null) {
+            return joinPoint.proceed();
+        }
+
+        boolean outermost = timing.enter(RequestTiming.APP);
+        long dbBefore = timing.getNanos(RequestTiming.DB);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            long dbNanos = timing.getNanos(RequestTiming.DB) - dbBefore;
+            timing.exit(RequestTiming.APP, Math.max(0, elapsed - dbNanos), outermost);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.aitravelplanner.backend.monitoring;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 用带计时的转换器替换默认的Jackson转换器，沿用原有的ObjectMapper配置
+ */
+@Configuration
+public class RequestTimingConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            HttpMessageConverter<?> converter = converters.get(i);
+            if (converter instanceof MappingJackson2HttpMessageConverter
+                    && !(converter instanceof TimedJackson2HttpMessageConverter)) {
+                MappingJackson2HttpMessageConverter jackson = (MappingJackson2HttpMessageConverter) converter;
+                TimedJackson2HttpMessageConverter timed = new TimedJackson2HttpMessageConverter(jackson.getObjectMapper());
+                timed.setSupportedMediaTypes(jackson.getSupportedMediaTypes());
+                converters.set(i, timed);
+            }
+        }
+    }
+}
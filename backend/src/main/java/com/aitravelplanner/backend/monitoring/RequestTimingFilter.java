@@ -0,0 +1,110 @@
+package com.aitravelplanner.backend.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 请求计时过滤器，位于过滤器链最前面
+ * 记录每个接口的总耗时和执行的语句数；开启monitoring.server-timing.enabled时缓冲响应体，
+ * 在写出前把各阶段耗时写入Server-Timing响应头
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private static final String TIMING_ATTRIBUTE = RequestTiming.class.getName();
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final EndpointLatencyRecorder endpointLatencyRecorder;
+    private final RequestStatementRecorder requestStatementRecorder;
+    private final boolean serverTimingEnabled;
+
+    public RequestTimingFilter(EndpointLatencyRecorder endpointLatencyRecorder, RequestStatementRecorder requestStatementRecorder,
+                               @Value("${monitoring.server-timing.enabled:false}") boolean serverTimingEnabled) {
+        this.endpointLatencyRecorder = endpointLatencyRecorder;
+        this.requestStatementRecorder = requestStatementRecorder;
+        this.serverTimingEnabled = serverTimingEnabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // 异步请求（如登录）在异步分派结束时才记录总耗时
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTiming timing = (RequestTiming) request.getAttribute(TIMING_ATTRIBUTE);
+        if (timing == null) {
+            timing = new RequestTiming();
+            request.setAttribute(TIMING_ATTRIBUTE, timing);
+        }
+
+        HttpServletResponse responseToUse = response;
+        if (serverTimingEnabled && !isAsyncDispatch(request) && shouldBuffer(request)
+                && WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class) == null) {
+            responseToUse = new ContentCachingResponseWrapper(response);
+        }
+
+        RequestTiming.bind(timing);
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            RequestTiming.unbind();
+            if (!isAsyncStarted(request)) {
+                complete(request, responseToUse, timing);
+            }
+        }
+    }
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, RequestTiming timing) throws IOException {
+        long totalNanos = System.nanoTime() - timing.getStartNanos();
+        String endpoint = endpointKey(request);
+        endpointLatencyRecorder.record(endpoint, totalNanos);
+        requestStatementRecorder.record(endpoint, timing.getCount(RequestTiming.SQL));
+
+        ContentCachingResponseWrapper wrapper = WebUtils.getNativeResponse(response, ContentCachingResponseWrapper.class);
+        if (wrapper != null) {
+            if (!wrapper.isCommitted()) {
+                wrapper.setHeader(SERVER_TIMING_HEADER, timing.toServerTimingHeader(totalNanos));
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 流式响应（SSE、推送连接、数据导出、语音识别）不能缓冲，这类请求不输出Server-Timing
+     */
+    private boolean shouldBuffer(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/api/push/") || uri.startsWith("/api/voice/") || uri.endsWith("/export")) {
+            return false;
+        }
+        String accept = request.getHeader("Accept");
+        return accept == null || !accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    private static String endpointKey(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "UNMATCHED");
+    }
+}
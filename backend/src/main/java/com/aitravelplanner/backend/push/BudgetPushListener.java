@@ -0,0 +1,75 @@
+package com.aitravelplanner.backend.push;
+
+import com.aitravelplanner.backend.dto.BudgetResponse;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.service.BudgetService;
+import com.aitravelplanner.backend.service.ExpenseChangedEvent;
+import com.aitravelplanner.backend.service.TripAccessGuard;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 消费记录变化提交后推送消费记录变化和最新预算，首次进入超支时额外推送超支提醒
+ * 在异步线程中执行，不占用写请求的时间；行程所有者没有在线连接时不计算预算
+ */
+@Component
+@Slf4j
+public class BudgetPushListener {
+
+    private final PushHub pushHub;
+    private final BudgetService budgetService;
+    private final TripAccessGuard tripAccessGuard;
+    private final UserRepository userRepository;
+    // 每个行程上一次推送时是否超支，只在由未超支变为超支时提醒
+    private final Cache<UUID, Boolean> lastOverspend = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    public BudgetPushListener(PushHub pushHub, BudgetService budgetService, TripAccessGuard tripAccessGuard,
+                              UserRepository userRepository) {
+        this.pushHub = pushHub;
+        this.budgetService = budgetService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.userRepository = userRepository;
+    }
+
+    @Async
+    @TransactionalEventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        UUID tripId = event.getTripId();
+        UUID ownerId = tripAccessGuard.ownerOf(tripId);
+        if (ownerId == null || !pushHub.hasConnections(ownerId)) {
+            return;
+        }
+        try {
+            Map<String, Object> changed = new LinkedHashMap<>();
+            changed.put("tripId", tripId);
+            pushHub.publish(ownerId, PushEvent.EXPENSES_CHANGED, changed);
+
+            User owner = userRepository.getReferenceById(ownerId);
+            BudgetResponse budget = budgetService.getBudgetStatus(tripId, owner);
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("tripId", tripId);
+            payload.put("budget", budget);
+            pushHub.publish(ownerId, PushEvent.BUDGET, payload);
+
+            // 原子地替换并取回上一次的状态，并发推送同一行程时只有一个看到由未超支变为超支
+            Boolean previous = lastOverspend.asMap().put(tripId, budget.isOverspend());
+            if (budget.isOverspend() && !Boolean.TRUE.equals(previous)) {
+                pushHub.publish(ownerId, PushEvent.BUDGET_OVERSPEND, payload);
+            }
+        } catch (RuntimeException e) {
+            // 推送失败不影响已提交的写入，客户端仍可主动刷新
+            log.warn("Failed to push budget update for trip {}", tripId, e);
+        }
+    }
+}
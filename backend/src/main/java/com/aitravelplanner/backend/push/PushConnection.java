@@ -0,0 +1,75 @@
+package com.aitravelplanner.backend.push;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一个SSE连接及其有界发送缓冲
+ * 发布方只把事件放入缓冲，由PushHub的发送线程写出；缓冲满时丢弃最旧的事件，慢客户端不会拖慢发布方
+ */
+class PushConnection {
+
+    private final UUID userId;
+    private final SseEmitter emitter;
+    private final ArrayBlockingQueue<PushEvent> buffer;
+    // 是否已有发送任务在排队或执行，保证同一连接同时只有一个线程写出
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    PushConnection(UUID userId, SseEmitter emitter, int bufferSize) {
+        this.userId = userId;
+        this.emitter = emitter;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    UUID getUserId() {
+        return userId;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 标记为已关闭，只有第一次调用返回true
+     */
+    boolean markClosed() {
+        return closed.compareAndSet(false, true);
+    }
+
+    /**
+     * 放入缓冲，返回因缓冲已满而丢弃的事件数
+     */
+    int enqueue(PushEvent event) {
+        int dropped = 0;
+        while (!buffer.offer(event)) {
+            if (buffer.poll() != null) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    PushEvent poll() {
+        return buffer.poll();
+    }
+
+    boolean isEmpty() {
+        return buffer.isEmpty();
+    }
+
+    boolean tryStartDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void stopDraining() {
+        draining.set(false);
+    }
+}
@@ -0,0 +1,23 @@
+package com.aitravelplanner.backend.push;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 推送给客户端的一条事件
+ * 数据在发布时序列化一次，所有连接共用同一个JSON字符串
+ */
+@Getter
+@AllArgsConstructor
+public class PushEvent {
+
+    public static final String PLAN_READY = "plan-ready";
+    public static final String PLAN_FAILED = "plan-failed";
+    public static final String BUDGET = "budget";
+    public static final String BUDGET_OVERSPEND = "budget-overspend";
+    public static final String EXPENSES_CHANGED = "expenses-changed";
+
+    private final String id;        // 事件ID，客户端重连时不用于重放，只用于去重
+    private final String type;      // SSE事件名
+    private final String json;      // 事件数据
+}
@@ -0,0 +1,228 @@
+package com.aitravelplanner.backend.push;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的推送中心：按用户保存SSE连接，把事件分发到该用户的所有连接
+ * 发布方只做一次序列化并放入各连接的有界缓冲，写出由少量发送线程完成；
+ * 定时发送心跳，写出失败的连接立即移除。
+ * 发送线程池有意不注册为Executor Bean，避免被@Async当作默认执行器
+ */
+@Component
+@Slf4j
+public class PushHub {
+
+    // 心跳只写SSE注释行，不进入客户端的事件处理
+    private static final PushEvent HEARTBEAT = new PushEvent(null, null, null);
+
+    private final Map<UUID, List<PushConnection>> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor sender;
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final int maxConnectionsPerUser;
+
+    public PushHub(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                   @Value("${push.timeout-ms:1800000}") long timeoutMs,
+                   @Value("${push.buffer-size:64}") int bufferSize,
+                   @Value("${push.max-connections-per-user:5}") int maxConnectionsPerUser,
+                   @Value("${push.sender-threads:2}") int senderThreads) {
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "push-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        // 每个连接最多排队一个发送任务，队列长度不超过连接数
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+
+        Gauge.builder("push.connections", connectionCount, AtomicInteger::get)
+                .description("Open server-sent event connections")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("push.events.published")
+                .description("Events published to at least one connection")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("push.events.dropped")
+                .description("Events discarded because a connection buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为用户打开一个连接；超过每用户连接数上限时关闭该用户最早的连接
+     */
+    public SseEmitter connect(UUID userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        PushConnection connection = new PushConnection(userId, emitter, bufferSize);
+        List<PushConnection> evicted = new ArrayList<>();
+        connections.compute(userId, (id, list) -> {
+            List<PushConnection> userConnections = list != null ? list : new CopyOnWriteArrayList<>();
+            userConnections.add(connection);
+            while (userConnections.size() > maxConnectionsPerUser) {
+                evicted.add(userConnections.remove(0));
+            }
+            return userConnections;
+        });
+        connectionCount.incrementAndGet();
+        for (PushConnection old : evicted) {
+            close(old);
+        }
+
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        // 立即写出一次，让代理尽早转发响应头
+        enqueue(connection, HEARTBEAT);
+        return emitter;
+    }
+
+    /**
+     * 向用户的所有连接发布事件；用户没有连接时不做序列化
+     */
+    public void publish(UUID userId, String type, Object data) {
+        List<PushConnection> userConnections = connections.get(userId);
+        if (userConnections == null || userConnections.isEmpty()) {
+            return;
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot serialize {} push event", type, e);
+            return;
+        }
+        PushEvent event = new PushEvent(Long.toString(sequence.incrementAndGet()), type, json);
+        publishedCounter.increment();
+        for (PushConnection connection : userConnections) {
+            enqueue(connection, event);
+        }
+    }
+
+    public boolean hasConnections(UUID userId) {
+        List<PushConnection> userConnections = connections.get(userId);
+        return userConnections != null && !userConnections.isEmpty();
+    }
+
+    @Scheduled(fixedDelayString = "${push.heartbeat-ms:25000}", initialDelayString = "${push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (List<PushConnection> userConnections : connections.values()) {
+            for (PushConnection connection : userConnections) {
+                // 缓冲中有待发送的事件时不需要心跳
+                if (connection.isEmpty()) {
+                    enqueue(connection, HEARTBEAT);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (List<PushConnection> userConnections : connections.values()) {
+            for (PushConnection connection : userConnections) {
+                close(connection);
+            }
+        }
+        sender.shutdown();
+    }
+
+    private void enqueue(PushConnection connection, PushEvent event) {
+        if (connection.isClosed()) {
+            return;
+        }
+        int dropped = connection.enqueue(event);
+        if (dropped > 0) {
+            droppedCounter.increment(dropped);
+        }
+        scheduleDrain(connection);
+    }
+
+    private void scheduleDrain(PushConnection connection) {
+        if (!connection.tryStartDraining()) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(connection));
+        } catch (RejectedExecutionException e) {
+            // 仅在关闭过程中发生
+            connection.stopDraining();
+        }
+    }
+
+    private void drain(PushConnection connection) {
+        SseEmitter emitter = connection.getEmitter();
+        try {
+            PushEvent event;
+            while (!connection.isClosed() && (event = connection.poll()) != null) {
+                if (event == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    emitter.send(SseEmitter.event().id(event.getId()).name(event.getType()).data(event.getJson()));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开或连接已结束，容器会回调onError/onCompletion
+            log.debug("Push connection for user {} closed: {}", connection.getUserId(), e.getMessage());
+            remove(connection);
+        } finally {
+            connection.stopDraining();
+        }
+        // 停止前新放入的事件由这里补发
+        if (!connection.isClosed() && !connection.isEmpty()) {
+            scheduleDrain(connection);
+        }
+    }
+
+    private void close(PushConnection connection) {
+        remove(connection);
+        try {
+            connection.getEmitter().complete();
+        } catch (IllegalStateException e) {
+            // 连接已结束
+        }
+    }
+
+    private void remove(PushConnection connection) {
+        if (!connection.markClosed()) {
+            return;
+        }
+        connectionCount.decrementAndGet();
+        connections.computeIfPresent(connection.getUserId(), (id, list) -> {
+            list.remove(connection);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
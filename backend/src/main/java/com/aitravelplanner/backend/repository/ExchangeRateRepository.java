@@ -0,0 +1,9 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.model.ExchangeRate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, String> {
+}
@@ -4,17 +4,48 @@ import com.aitravelplanner.backend.model.Expense;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, UUID> {
+public interface ExpenseRepository extends JpaRepository<Expense, UUID>, ExpenseRepositoryCustom {
     List<Expense> findByTrip(Trip trip);
     List<Expense> findByTripId(UUID tripId);
     List<Expense> findByUser(User user);
     List<Expense> findByUserId(UUID userId);
     List<Expense> findByTripIdAndUserId(UUID tripId, UUID userId);
-    void deleteByTripId(UUID tripId);
+
+    /**
+     * 删除行程的所有消费记录，一条delete语句完成，不逐条加载实体
+     */
+    @Modifying
+    @Query("delete from Expense e where e.trip.id = :tripId")
+    int deleteByTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * 行程按货币的已花费金额，返回 [currency, sum(amount)]
+     */
+    @Query("select e.currency, coalesce(sum(e.amount), 0) from Expense e where e.trip.id = :tripId group by e.currency")
+    List<Object[]> sumAmountByCurrency(@Param("tripId") UUID tripId);
+
+    /**
+     * 对账：多个行程按货币的已花费金额，返回 [tripId, currency, sum(amount)]
+     */
+    @Query("select e.trip.id, e.currency, coalesce(sum(e.amount), 0) from Expense e "
+            + "where e.trip.id in :tripIds group by e.trip.id, e.currency")
+    List<Object[]> sumAmountByTripIdsAndCurrency(@Param("tripIds") Collection<UUID> tripIds);
+
+    /**
+     * 预算分析：按 (类别, 消费日期, 货币) 分组汇总，返回 [category, expenseDate, currency, sum(amount), count]
+     * 一次分组查询，返回行数只取决于类别数、天数和货币数，与消费记录数量无关
+     */
+    @Query("select e.category, e.expenseDate, e.currency, coalesce(sum(e.amount), 0), count(e) from Expense e "
+            + "where e.trip.id = :tripId group by e.category, e.expenseDate, e.currency")
+    List<Object[]> sumByCategoryDateAndCurrency(@Param("tripId") UUID tripId);
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.dto.ExpenseQuery;
+import com.aitravelplanner.backend.model.Expense;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Expense的自定义查询，由ExpenseRepositoryImpl实现
+ */
+public interface ExpenseRepositoryCustom {
+
+    /**
+     * 按 (createdAt, id) 进行keyset分页查询行程的消费记录
+     * @param after 上一页最后一行的游标，为null时从第一页开始
+     * @param limit 最多返回的行数
+     */
+    List<Expense> findPageByTripId(UUID tripId, ExpenseQuery query, KeysetCursor after, int limit);
+
+    /**
+     * 绕过JPA批量写入新的消费记录，id和createdAt须已在调用方设置
+     * 行数不超过copyThreshold时使用JDBC批处理，超过时使用PostgreSQL COPY
+     */
+    void bulkInsert(UUID tripId, UUID userId, List<Expense> expenses);
+}
@@ -0,0 +1,166 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.dto.ExpenseQuery;
+import com.aitravelplanner.backend.model.Expense;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+
+    private static final String INSERT_SQL = "insert into expenses "
+            + "(id, trip_id, user_id, amount, currency, comment, category, expense_date, created_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String COPY_SQL = "COPY expenses "
+            + "(id, trip_id, user_id, amount, currency, comment, category, expense_date, created_at) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private static final int BATCH_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${expense.bulk.copy-threshold:5000}")
+    private int copyThreshold;
+
+    @Override
+    public List<Expense> findPageByTripId(UUID tripId, ExpenseQuery query, KeysetCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Expense> cq = cb.createQuery(Expense.class);
+        Root<Expense> expense = cq.from(Expense.class);
+
+        boolean ascending = "asc".equalsIgnoreCase(query.getDirection());
+        Path<UUID> id = expense.get("id");
+        Path<Instant> createdAt = expense.get("createdAt");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(expense.get("trip").get("id"), tripId));
+
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(expense.<LocalDate>get("expenseDate"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(expense.<LocalDate>get("expenseDate"), query.getTo()));
+        }
+        if (query.getCategory() != null && !query.getCategory().trim().isEmpty()) {
+            predicates.add(cb.equal(expense.get("category"), query.getCategory().trim()));
+        }
+        if (after != null) {
+            predicates.add(KeysetCursor.after(cb, createdAt, Instant.parse(after.getValue()), id, after.getId(), ascending));
+        }
+
+        cq.select(expense)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(ascending ? cb.asc(createdAt) : cb.desc(createdAt),
+                        ascending ? cb.asc(id) : cb.desc(id));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public void bulkInsert(UUID tripId, UUID userId, List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        // 先刷出持久化上下文中的待写入变更，保证与JDBC写入的顺序一致
+        entityManager.flush();
+        if (expenses.size() > copyThreshold) {
+            copyIn(tripId, userId, expenses);
+        } else {
+            batchInsert(tripId, userId, expenses);
+        }
+    }
+
+    /**
+     * JDBC批处理，配合驱动的reWriteBatchedInserts合并为多值insert
+     */
+    private void batchInsert(UUID tripId, UUID userId, List<Expense> expenses) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, expenses, BATCH_SIZE, (ps, expense) -> {
+            ps.setObject(1, expense.getId());
+            ps.setObject(2, tripId);
+            ps.setObject(3, userId);
+            ps.setBigDecimal(4, expense.getAmount());
+            ps.setString(5, expense.getCurrency());
+            ps.setString(6, expense.getComment());
+            ps.setString(7, expense.getCategory());
+            if (expense.getExpenseDate() != null) {
+                ps.setDate(8, Date.valueOf(expense.getExpenseDate()));
+            } else {
+                ps.setNull(8, Types.DATE);
+            }
+            // 与Hibernate写入Instant的方式一致（按JVM时区转换为timestamp）
+            ps.setTimestamp(9, Timestamp.from(expense.getCreatedAt()));
+        });
+    }
+
+    /**
+     * 大批量使用COPY，在当前事务的连接上执行
+     */
+    private void copyIn(UUID tripId, UUID userId, List<Expense> expenses) {
+        StringBuilder csv = new StringBuilder(expenses.size() * 160);
+        for (Expense expense : expenses) {
+            csv.append(expense.getId()).append(',')
+                    .append(tripId).append(',')
+                    .append(userId).append(',')
+                    .append(expense.getAmount().toPlainString()).append(',');
+            appendCsv(csv, expense.getCurrency()).append(',');
+            appendCsv(csv, expense.getComment()).append(',');
+            appendCsv(csv, expense.getCategory()).append(',');
+            if (expense.getExpenseDate() != null) {
+                csv.append(expense.getExpenseDate());
+            }
+            csv.append(',').append(Timestamp.from(expense.getCreatedAt())).append('\n');
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(csv.toString()));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Bulk copy of expenses failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * CSV格式中未加引号的空值表示NULL，其余值一律加引号并转义其中的引号
+     */
+    private static StringBuilder appendCsv(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,69 @@
+package com.aitravelplanner.backend.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/**
+ * 导出用的流式查询
+ * 使用单独的JdbcTemplate并设置fetchSize，在只读事务中PostgreSQL驱动以游标分批取行，
+ * 每一行交给回调处理后即可丢弃，内存占用与行数无关。调用方必须处于事务中（autocommit关闭时游标才生效）
+ * 原生SQL不受Trip上@Where的约束，账户导出需要显式排除已删除的行程
+ */
+@Repository
+public class ExportRepository {
+
+    private static final String TRIP_EXPENSES_SQL = "select id, expense_date, category, amount, currency, comment, created_at "
+            + "from expenses where trip_id = ? order by created_at, id";
+
+    private static final String TRIP_LOCATIONS_SQL = "select id, name, lng, lat, description, type, day, order_index "
+            + "from locations where trip_id = ? order by day, order_index, id";
+
+    private static final String USER_SQL = "select id, email, created_at from users where id = ?";
+
+    private static final String USER_TRIPS_SQL = "select t.id, t.title, t.destination, t.start_date, t.end_date, t.budget_total, "
+            + "t.budget_currency, t.companion_count, t.created_at, t.updated_at, "
+            + "array(select p.preference from trip_preferences p where p.trip_id = t.id) as preferences "
+            + "from trips t where t.user_id = ? and t.deleted_at is null order by t.created_at, t.id";
+
+    private static final String USER_LOCATIONS_SQL = "select l.id, l.trip_id, l.name, l.lng, l.lat, l.description, l.type, l.day, l.order_index "
+            + "from locations l join trips t on t.id = l.trip_id where t.user_id = ? and t.deleted_at is null order by l.trip_id, l.day, l.order_index, l.id";
+
+    private static final String USER_EXPENSES_SQL = "select e.id, e.trip_id, e.expense_date, e.category, e.amount, e.currency, e.comment, e.created_at "
+            + "from expenses e join trips t on t.id = e.trip_id where t.user_id = ? and t.deleted_at is null order by e.trip_id, e.created_at, e.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportRepository(DataSource dataSource, @Value("${export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public void streamTripExpenses(UUID tripId, RowCallbackHandler handler) {
+        jdbcTemplate.query(TRIP_EXPENSES_SQL, handler, tripId);
+    }
+
+    public void streamTripLocations(UUID tripId, RowCallbackHandler handler) {
+        jdbcTemplate.query(TRIP_LOCATIONS_SQL, handler, tripId);
+    }
+
+    public void streamUser(UUID userId, RowCallbackHandler handler) {
+        jdbcTemplate.query(USER_SQL, handler, userId);
+    }
+
+    public void streamUserTrips(UUID userId, RowCallbackHandler handler) {
+        jdbcTemplate.query(USER_TRIPS_SQL, handler, userId);
+    }
+
+    public void streamUserLocations(UUID userId, RowCallbackHandler handler) {
+        jdbcTemplate.query(USER_LOCATIONS_SQL, handler, userId);
+    }
+
+    public void streamUserExpenses(UUID userId, RowCallbackHandler handler) {
+        jdbcTemplate.query(USER_EXPENSES_SQL, handler, userId);
+    }
+}
@@ -0,0 +1,152 @@
+package com.aitravelplanner.backend.repository;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset分页游标
+ * 记录上一页最后一行的排序键和ID，下一页从 (排序键, id) 之后继续读取，
+ * 配合 (外键, 排序键, id) 复合索引，任意深度的分页代价都与第一页相同。
+ * 游标记录生成时的排序字段和方向，只能用于相同排序的下一页
+ */
+public final class KeysetCursor {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    public static final String ASC = "asc";
+    public static final String DESC = "desc";
+
+    private final String sort;
+    private final String direction;
+    private final String value;
+    private final UUID id;
+
+    /**
+     * @param value 最后一行的排序键，排序键为null时传null
+     */
+    public KeysetCursor(String sort, String direction, String value, UUID id) {
+        this.sort = sort;
+        this.direction = direction;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    /**
+     * 最后一行的排序键，为null时表示该行的排序键为空
+     */
+    public String getValue() {
+        return value;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * 规范化排序方向，asc（不区分大小写）为升序，其余为降序
+     */
+    public static String normalizeDirection(String direction) {
+        return ASC.equalsIgnoreCase(direction) ? ASC : DESC;
+    }
+
+    /**
+     * 编码为URL安全的Base64字符串，格式为 sort|direction|value|id，排序键为null时value为空
+     */
+    public String encode() {
+        String raw = sort + "|" + direction + "|" + (value != null ? value : "") + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，并校验它是否属于当前的排序字段和方向
+     */
+    public static KeysetCursor decode(String cursor, String expectedSort, String expectedDirection) {
+        String[] parts;
+        UUID id;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            id = UUID.fromString(parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        if (!parts[0].equals(expectedSort) || !parts[1].equals(expectedDirection)) {
+            throw new IllegalArgumentException("Cursor does not match sort " + expectedSort + " " + expectedDirection
+                    + "; restart from the first page");
+        }
+        return new KeysetCursor(parts[0], parts[1], parts[2].isEmpty() ? null : parts[2], id);
+    }
+
+    /**
+     * 规范化每页数量
+     */
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * 构建 (key, id) > (value, lastId) 或 (key, id) < (value, lastId) 的keyset条件
+     */
+    static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb,
+                                                              Expression<T> key, T value,
+                                                              Expression<UUID> id, UUID lastId,
+                                                              boolean ascending) {
+        if (ascending) {
+            return cb.or(
+                    cb.greaterThan(key, value),
+                    cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)));
+        }
+        return cb.or(
+                cb.lessThan(key, value),
+                cb.and(cb.equal(key, value), cb.lessThan(id, lastId)));
+    }
+
+    /**
+     * 排序键可以为null时的keyset条件，null的位置与PostgreSQL默认一致：升序排在最后，降序排在最前
+     * value为null表示上一页最后一行的排序键为null
+     */
+    static <T extends Comparable<? super T>> Predicate afterNullable(CriteriaBuilder cb,
+                                                                      Expression<T> key, T value,
+                                                                      Expression<UUID> id, UUID lastId,
+                                                                      boolean ascending) {
+        if (value == null) {
+            Predicate nullsAfter = cb.and(cb.isNull(key),
+                    ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId));
+            // 升序时null已在最后；降序时null之后是全部非null的行
+            return ascending ? nullsAfter : cb.or(nullsAfter, cb.isNotNull(key));
+        }
+        Predicate after = after(cb, key, value, id, lastId, ascending);
+        // 升序时非null的行之后还有null的行；降序时null的行都在前面，比较结果为null自然排除
+        return ascending ? cb.or(after, cb.isNull(key)) : after;
+    }
+
+    /**
+     * 转义LIKE模式中的通配符，转义字符为反斜杠
+     */
+    static String likeContains(String text) {
+        String escaped = text.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
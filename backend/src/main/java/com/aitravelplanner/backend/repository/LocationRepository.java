@@ -2,8 +2,12 @@ package com.aitravelplanner.backend.repository;
 
 import com.aitravelplanner.backend.model.Location;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,13 +22,20 @@ public interface LocationRepository extends JpaRepository<Location, UUID> {
      */
     List<Location> findByTripId(UUID tripId);
     
+    /**
+     * 一次性查询多个行程的所有位置，按天数和顺序索引排序，用于行程列表避免N+1查询
+     */
+    List<Location> findByTripIdInOrderByDayAscOrderIndexAsc(Collection<UUID> tripIds);
+    
     /**
      * 根据行程ID和天数查找位置，按顺序索引排序
      */
     List<Location> findByTripIdAndDayOrderByOrderIndex(UUID tripId, Integer day);
     
     /**
-     * 删除行程相关的所有位置
+     * 删除行程相关的所有位置，一条delete语句完成，不逐条加载实体
      */
-    void deleteByTripId(UUID tripId);
+    @Modifying
+    @Query("delete from Location l where l.tripId = :tripId")
+    int deleteByTripId(@Param("tripId") UUID tripId);
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.aitravelplanner.backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 清理已删除的行程，全部是集合操作的delete语句
+ * 直接使用JDBC：Hibernate执行原生修改语句时会清空整个二级缓存，而这里删除的行程早已不可访问
+ */
+@Repository
+public class TripPurgeRepository {
+
+    // 按行程可能有大量行的子表，每条语句最多删除limit行
+    private static final String[] LARGE_CHILD_TABLES = {"locations", "expenses", "trip_versions"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TripPurgeRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 删除时间早于before的行程ID，先删除的先清理
+     */
+    public List<UUID> findDeletedTripIds(Instant before, int limit) {
+        return jdbcTemplate.queryForList(
+                "select id from trips where deleted_at is not null and deleted_at < ? order by deleted_at limit ?",
+                UUID.class, Timestamp.from(before), limit);
+    }
+
+    /**
+     * 从每个大子表中删除这些行程的至多limit行，返回删除的总行数；返回0表示子表已清空
+     */
+    public int deleteChildRows(List<UUID> tripIds, int limit) {
+        int deleted = 0;
+        for (String table : LARGE_CHILD_TABLES) {
+            String sql = "delete from " + table + " where id in (select id from " + table + " where trip_id = any(?) limit ?)";
+            deleted += jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                ps.setArray(1, uuidArray(connection, tripIds));
+                ps.setInt(2, limit);
+                return ps;
+            });
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除行程本身及每个行程只有少量行的附属表，调用前大子表必须已清空
+     * 只删除仍处于已删除状态的行程，返回删除的行程数
+     */
+    public int deleteTrips(List<UUID> tripIds) {
+        for (String sql : new String[]{
+                "delete from trip_preferences where trip_id = any(?)",
+                "delete from trip_spend_totals where trip_id = any(?)",
+                "delete from trip_stats where trip_id = any(?)"}) {
+            update(sql, tripIds);
+        }
+        return update("delete from trips where id = any(?) and deleted_at is not null", tripIds);
+    }
+
+    private int update(String sql, List<UUID> tripIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, uuidArray(connection, tripIds));
+            return ps;
+        });
+    }
+
+    private static Array uuidArray(Connection connection, List<UUID> ids) throws SQLException {
+        return connection.createArrayOf("uuid", ids.toArray());
+    }
+}
@@ -2,14 +2,39 @@ package com.aitravelplanner.backend.repository;
 
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface TripRepository extends JpaRepository<Trip, UUID> {
+public interface TripRepository extends JpaRepository<Trip, UUID>, TripRepositoryCustom {
     List<Trip> findByUser(User user);
     List<Trip> findByUserId(UUID userId);
+
+    /**
+     * 查询用户的所有行程，并通过实体图一并抓取偏好集合，避免逐个行程加载preferences
+     */
+    @EntityGraph(attributePaths = "preferences")
+    List<Trip> findDistinctByUserIdOrderByCreatedAtDesc(UUID userId);
+
+    /**
+     * 只查询行程所有者ID，用于权限校验
+     */
+    @Query("select t.user.id from Trip t where t.id = :id")
+    Optional<UUID> findOwnerIdById(@Param("id") UUID id);
+
+    /**
+     * 加行级写锁读取行程，串行化同一行程的计划写入
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Trip t where t.id = :id")
+    Optional<Trip> findByIdForUpdate(@Param("id") UUID id);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.dto.TripQuery;
+import com.aitravelplanner.backend.model.Trip;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Trip的自定义查询，由TripRepositoryImpl实现
+ */
+public interface TripRepositoryCustom {
+
+    /**
+     * 按 (排序字段, id) 进行keyset分页查询用户的行程
+     * @param after 上一页最后一行的游标，为null时从第一页开始
+     * @param limit 最多返回的行数
+     */
+    List<Trip> findPageByUserId(UUID userId, TripQuery query, KeysetCursor after, int limit);
+}
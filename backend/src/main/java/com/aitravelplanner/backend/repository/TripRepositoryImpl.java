@@ -0,0 +1,76 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.dto.TripQuery;
+import com.aitravelplanner.backend.model.Trip;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class TripRepositoryImpl implements TripRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Trip> findPageByUserId(UUID userId, TripQuery query, KeysetCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Trip> cq = cb.createQuery(Trip.class);
+        Root<Trip> trip = cq.from(Trip.class);
+
+        boolean ascending = "asc".equalsIgnoreCase(query.getDirection());
+        boolean byStartDate = "startDate".equals(query.getSort());
+        Path<UUID> id = trip.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(trip.get("user").get("id"), userId));
+
+        // 日期范围：返回与 [from, to] 有交集的行程
+        if (query.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(trip.<LocalDate>get("endDate"), query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(trip.<LocalDate>get("startDate"), query.getTo()));
+        }
+        if (query.getDestination() != null && !query.getDestination().trim().isEmpty()) {
+            predicates.add(cb.like(cb.lower(trip.<String>get("destination")),
+                    KeysetCursor.likeContains(query.getDestination().trim()), '\\'));
+        }
+
+        Path<?> sortKey;
+        if (byStartDate) {
+            Path<LocalDate> startDate = trip.get("startDate");
+            sortKey = startDate;
+            if (after != null) {
+                // 开始日期和创建时间列都允许为空，游标中的排序键也可能为null
+                LocalDate lastStartDate = after.getValue() != null ? LocalDate.parse(after.getValue()) : null;
+                predicates.add(KeysetCursor.afterNullable(cb, startDate, lastStartDate, id, after.getId(), ascending));
+            }
+        } else {
+            Path<Instant> createdAt = trip.get("createdAt");
+            sortKey = createdAt;
+            if (after != null) {
+                Instant lastCreatedAt = after.getValue() != null ? Instant.parse(after.getValue()) : null;
+                predicates.add(KeysetCursor.afterNullable(cb, createdAt, lastCreatedAt, id, after.getId(), ascending));
+            }
+        }
+
+        cq.select(trip)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(ascending ? cb.asc(sortKey) : cb.desc(sortKey),
+                        ascending ? cb.asc(id) : cb.desc(id));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,32 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.model.TripSpendTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TripSpendTotalRepository extends JpaRepository<TripSpendTotal, TripSpendTotal.Key> {
+
+    /**
+     * 累加某一货币的已花费金额，返回更新的行数（行不存在时为0）
+     */
+    @Modifying
+    @Query("update TripSpendTotal t set t.amount = t.amount + :delta where t.tripId = :tripId and t.currency = :currency")
+    int addAmount(@Param("tripId") UUID tripId, @Param("currency") String currency, @Param("delta") BigDecimal delta);
+
+    List<TripSpendTotal> findByTripId(UUID tripId);
+
+    List<TripSpendTotal> findByTripIdIn(Collection<UUID> tripIds);
+
+    @Modifying
+    @Query("delete from TripSpendTotal t where t.tripId = :tripId")
+    int deleteByTripId(@Param("tripId") UUID tripId);
+}
@@ -0,0 +1,58 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.model.TripStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface TripStatsRepository extends JpaRepository<TripStats, UUID> {
+
+    /**
+     * 原子递增消费记录版本，返回更新的行数（行不存在时为0）
+     * 更新会锁住该行程的统计行，同一行程的消费记录变化因此串行提交
+     */
+    @Modifying
+    @Query("update TripStats s set s.expenseVersion = s.expenseVersion + 1 where s.tripId = :tripId")
+    int incrementExpenseVersion(@Param("tripId") UUID tripId);
+
+    /**
+     * 统计行不存在时插入（版本为0），返回插入的行数
+     * 并发插入同一行程时只有一个成功，另一个等待前者提交后返回0
+     */
+    @Modifying
+    @Query(value = "insert into trip_stats (trip_id, expense_version) values (:tripId, 0) on conflict (trip_id) do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("tripId") UUID tripId);
+
+    @Query("select s.expenseVersion from TripStats s where s.tripId = :tripId")
+    Optional<Long> findExpenseVersion(@Param("tripId") UUID tripId);
+
+    /**
+     * 锁定行程的统计行，对账修正时阻止并发的消费记录变化
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from TripStats s where s.tripId = :tripId")
+    Optional<TripStats> findByIdForUpdate(@Param("tripId") UUID tripId);
+
+    /**
+     * 对账：按tripId顺序分页遍历未删除的行程，返回 [tripId, 统计行的tripId]
+     * 统计行不存在（早于统计表创建的行程）时第二列为null
+     */
+    @Query("select t.id, s.tripId from Trip t left join TripStats s on s.tripId = t.id "
+            + "where t.id > :after order by t.id")
+    List<Object[]> findTripsAfter(@Param("after") UUID after, Pageable pageable);
+
+    @Modifying
+    @Query("delete from TripStats s where s.tripId = :tripId")
+    int deleteByTripId(@Param("tripId") UUID tripId);
+}
@@ -1,8 +1,12 @@
 package com.aitravelplanner.backend.repository;
 
+import com.aitravelplanner.backend.dto.TripVersionResponse;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.TripVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +19,35 @@ public interface TripVersionRepository extends JpaRepository<TripVersion, UUID>
     List<TripVersion> findByTripIdOrderByVersionDesc(UUID tripId);
     TripVersion findByTripIdAndVersion(UUID tripId, Integer version);
     Integer countByTripId(UUID tripId);
-}
\ No newline at end of file
+
+    /**
+     * 版本列表，不加载计划内容
+     */
+    @Query("select new com.aitravelplanner.backend.dto.TripVersionResponse(v.version, v.description, v.createdAt) " +
+            "from TripVersion v where v.trip.id = :tripId order by v.version desc")
+    List<TripVersionResponse> findSummariesByTripId(@Param("tripId") UUID tripId);
+
+    /**
+     * 不晚于指定版本的最近一个关键帧
+     */
+    TripVersion findFirstByTripIdAndKeyframeTrueAndVersionLessThanEqualOrderByVersionDesc(UUID tripId, Integer version);
+
+    /**
+     * 最新的关键帧
+     */
+    TripVersion findFirstByTripIdAndKeyframeTrueOrderByVersionDesc(UUID tripId);
+
+    /**
+     * 从关键帧到目标版本的所有版本，按版本号升序依次应用
+     */
+    List<TripVersion> findByTripIdAndVersionBetweenOrderByVersionAsc(UUID tripId, Integer from, Integer to);
+
+    List<TripVersion> findByTripIdAndVersionGreaterThanEqualOrderByVersionAsc(UUID tripId, Integer version);
+
+    /**
+     * 删除早于指定版本的历史，调用方保证保留下来的最早版本是关键帧
+     */
+    @Modifying
+    @Query("delete from TripVersion v where v.trip.id = :tripId and v.version < :version")
+    int deleteOlderThan(@Param("tripId") UUID tripId, @Param("version") Integer version);
+}
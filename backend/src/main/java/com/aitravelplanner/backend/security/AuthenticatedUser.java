@@ -0,0 +1,80 @@
+package com.aitravelplanner.backend.security;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 认证后的用户身份
+ * JWT认证时直接由token中的声明构建，控制器通过用户ID获取User引用，无需再按邮箱查询users表
+ */
+public class AuthenticatedUser implements UserDetails, CredentialsContainer {
+
+    private final UUID id;
+    private final String email;
+    private final int tokenVersion;
+    private String password;    // 仅用户名密码登录时持有密码哈希，认证完成后被擦除
+
+    public AuthenticatedUser(UUID id, String email, int tokenVersion, String password) {
+        this.id = id;
+        this.email = email;
+        this.tokenVersion = tokenVersion;
+        this.password = password;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void eraseCredentials() {
+        this.password = null;
+    }
+}
@@ -2,8 +2,14 @@ package com.aitravelplanner.backend.security;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.monitoring.RequestTiming;
+import com.aitravelplanner.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,77 +22,137 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
 
+    // EventSource不能设置请求头，推送接口允许通过查询参数传递token
+    private static final String PUSH_STREAM_PATH = "/api/push/stream";
+    private static final String ACCESS_TOKEN_PARAM = "access_token";
+
+    public static final String ROLE_ADMIN = "ADMIN";
+    private static final Collection<GrantedAuthority> ADMIN_AUTHORITIES =
+            Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + ROLE_ADMIN));
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserRepository userRepository;
+
+    // 运维账户的邮箱（小写），这些用户额外获得ADMIN角色，可访问 /api/internal/**
+    private Set<String> adminEmails = Collections.emptySet();
+
+    @Value("${security.admin-emails:}")
+    void setAdminEmails(String[] emails) {
+        Set<String> normalized = new HashSet<>();
+        for (String email : emails) {
+            if (!email.trim().isEmpty()) {
+                normalized.add(email.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        this.adminEmails = normalized;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        logger.info("Processing authentication for request: {}", request.getRequestURI());
-        
+        long authStart = System.nanoTime();
         final String authorizationHeader = request.getHeader("Authorization");
-        logger.info("Authorization header: {}", authorizationHeader != null ? "Bearer [hidden]" : "missing");
 
         String username = null;
-        String jwt = null;
+        VerifiedToken token = null;
 
-        // 从Authorization头中提取JWT token
+        // 从Authorization头中提取JWT token，推送接口也可以使用查询参数
+        String jwt = null;
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             jwt = authorizationHeader.substring(7);
-            logger.info("JWT token extracted: {}", jwt != null ? "[present]" : "null");
-            
+        } else if (PUSH_STREAM_PATH.equals(request.getRequestURI())) {
+            jwt = request.getParameter(ACCESS_TOKEN_PARAM);
+        }
+        if (jwt != null) {
             try {
-                username = jwtUtil.extractUsername(jwt);
-                logger.info("Username extracted from JWT: {}", username);
+                // 每个请求只解析验签一次，已验签的token直接取缓存
+                token = jwtUtil.verify(jwt);
+                username = token.getSubject();
             } catch (Exception e) {
-                logger.error("Failed to extract username from JWT: {}", e.getMessage());
-                logger.error("JWT validation error:", e);
+                // 过期或伪造的token属于正常情况，不输出堆栈
+                logger.debug("Rejected JWT for {}: {}", request.getRequestURI(), e.getMessage());
             }
-        } else {
-            logger.info("No valid Authorization header found");
         }
 
         // 如果找到用户名并且当前没有认证信息
-        if (username != null) {
-            logger.info("Username found: {}, checking authentication status", username);
-            
-            if (SecurityContextHolder.getContext().getAuthentication() == null) {
-                logger.info("No existing authentication, proceeding with authentication");
-                
-                try {
-                    UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                    logger.info("User details loaded successfully for: {}", username);
-
-                    // 验证token是否有效
-                    if (jwtUtil.validateToken(jwt, userDetails)) {
-                        logger.info("JWT token is valid for user: {}", username);
-                        UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                        usernamePasswordAuthenticationToken
-                                .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-                        logger.info("User {} successfully authenticated", username);
-                    } else {
-                        logger.error("JWT token validation failed for user: {}", username);
-                    }
-                } catch (Exception e) {
-                    logger.error("Error during user authentication: {}", e.getMessage());
-                    logger.error("Authentication error:", e);
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            try {
+                AuthenticatedUser principal = authenticate(token);
+                if (principal != null) {
+                    UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
+                            principal, null, authoritiesOf(principal));
+                    usernamePasswordAuthenticationToken
+                            .setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                    logger.debug("User {} authenticated for {}", username, request.getRequestURI());
+                } else {
+                    logger.debug("JWT revoked or user missing: {}", username);
                 }
-            } else {
-                logger.info("User already authenticated, skipping");
+            } catch (Exception e) {
+                logger.error("Error during user authentication for {}", username, e);
             }
         }
         
-        logger.info("Authentication processing completed for: {}", request.getRequestURI());
+        RequestTiming.record(RequestTiming.AUTH, System.nanoTime() - authStart);
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private Collection<? extends GrantedAuthority> authoritiesOf(AuthenticatedUser principal) {
+        String email = principal.getEmail();
+        if (email != null && adminEmails.contains(email.toLowerCase(Locale.ROOT))) {
+            return ADMIN_AUTHORITIES;
+        }
+        return principal.getAuthorities();
+    }
+
+    /**
+     * 由已验签的token构建认证身份，校验失败时返回null
+     * 新token携带用户ID和token版本，版本比对使用二级缓存中的用户实体，稳定状态下不查询users表；
+     * 不含用户ID的旧token仍按邮箱加载用户，没有版本声明按版本0处理，同样受退出所有设备和刷新token重放吊销的约束
+     */
+    private AuthenticatedUser authenticate(VerifiedToken token) {
+        UUID userId = token.getUserId();
+        if (userId == null) {
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(token.getSubject());
+            if (!(userDetails instanceof AuthenticatedUser)) {
+                return null;
+            }
+            AuthenticatedUser user = (AuthenticatedUser) userDetails;
+            if (token.getTokenVersion() != user.getTokenVersion()) {
+                return null;
+            }
+            user.eraseCredentials();
+            return user;
+        }
+
+        int tokenVersion = token.getTokenVersion();
+        Optional<User> user = userRepository.findById(userId);
+        if (!user.isPresent()) {
+            return null;
+        }
+        int currentVersion = user.get().getTokenVersion() != null ? user.get().getTokenVersion() : 0;
+        if (tokenVersion != currentVersion) {
+            // token版本已递增，说明该token已被吊销
+            return null;
+        }
+        return new AuthenticatedUser(userId, token.getSubject(), tokenVersion, null);
+    }
+}
@@ -1,71 +1,126 @@
 package com.aitravelplanner.backend.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
+    // 用户ID和token版本声明，认证时据此构建身份，无需查询users表
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_TOKEN_VERSION = "tv";
+
     @Value("${jwt.secret}")
     private String SECRET_KEY;
 
     @Value("${jwt.expiration-ms}")
     private long JWT_EXPIRATION;
 
+    // 已验签token缓存的容量上限
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
     private SecretKey key;
 
+    // 解析器线程安全，初始化时构建一次，避免每次解析重新构建
+    private JwtParser parser;
+
+    // 已验签的token，按token的SHA-256摘要缓存到token过期为止
+    private Cache<String, VerifiedToken> verifiedTokens;
+
     // ✅ 初始化时把 SECRET_KEY 转成 HMAC SHA Key
     @PostConstruct
     public void init() {
         key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
-    }
+        parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String hash, VerifiedToken token, long currentTime) {
+                        long remaining = token.getExpiresAtMillis() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+                    }
 
-    // 从 token 取 username
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+                    @Override
+                    public long expireAfterUpdate(String hash, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
 
-    // 取过期时间
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+                    @Override
+                    public long expireAfterRead(String hash, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    // 取任意 Claims
-    public <T> T extractClaim(String token, Function<Claims, T> resolver) {
+    /**
+     * 验证token并返回认证所需的声明，每个请求只需调用一次
+     * 命中缓存时不再解析和验签；签名无效或已过期时抛出JwtException
+     */
+    public VerifiedToken verify(String token) {
+        String hash = sha256(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(hash);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return cached;
+        }
+
         Claims claims = extractAllClaims(token);
-        return resolver.apply(claims);
+        String userId = claims.get(CLAIM_USER_ID, String.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                userId != null ? UUID.fromString(userId) : null,
+                tokenVersion != null ? tokenVersion : 0,
+                claims.getExpiration().getTime());
+        verifiedTokens.put(hash, verified);
+        return verified;
     }
 
-    // ✅ 新版解析方式
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
-    // 判断是否过期
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // ✅ 新版解析方式
+    private Claims extractAllClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    // 生成 token
-    public String generateToken(String username) {
+    // 生成携带用户ID和token版本的 token
+    public String generateToken(UUID userId, String email, int tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, username);
+        claims.put(CLAIM_USER_ID, userId.toString());
+        claims.put(CLAIM_TOKEN_VERSION, tokenVersion);
+        return createToken(claims, email);
     }
 
     // ✅ 新版 token 生成方式
@@ -78,9 +133,4 @@ public class JwtUtil {
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
-
-    // 校验 token
-    public boolean validateToken(String token, UserDetails userDetails) {
-        return extractUsername(token).equals(userDetails.getUsername()) && !isTokenExpired(token);
-    }
 }
@@ -75,6 +75,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .authorizeRequests()
                 // 允许公开访问的端点
                 .antMatchers("/api/auth/**", "/swagger-ui/**", "/v3/api-docs/**").permitAll()
+                // 内部运维接口只对security.admin-emails中的账户开放
+                .antMatchers("/api/internal/**").hasRole(JwtAuthenticationFilter.ROLE_ADMIN)
                 // 其他所有/api/**端点都需要认证
                 .antMatchers("/api/**").authenticated()
                 // 其他所有请求都允许
@@ -8,8 +8,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
@@ -21,10 +19,11 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
         
-        // 返回Spring Security的User对象，包含用户名、密码和权限列表
-        return new org.springframework.security.core.userdetails.User(
+        // 返回携带用户ID和token版本的认证身份，登录后据此签发JWT
+        return new AuthenticatedUser(
+                user.getId(),
                 user.getEmail(),
-                user.getPasswordHash(),
-                new ArrayList<>());
+                user.getTokenVersion() != null ? user.getTokenVersion() : 0,
+                user.getPasswordHash());
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.aitravelplanner.backend.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 验签通过的JWT中认证所需的声明
+ * 同一token只解析验签一次，结果在过期前缓存复用
+ */
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+
+    private final String subject;
+    private final UUID userId;          // 旧token中为null
+    private final int tokenVersion;
+    private final long expiresAtMillis;
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
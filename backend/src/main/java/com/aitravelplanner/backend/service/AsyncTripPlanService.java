@@ -2,12 +2,18 @@ package com.aitravelplanner.backend.service;
 
 import com.aitravelplanner.backend.dto.DayPlanDTO;
 import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.push.PushEvent;
+import com.aitravelplanner.backend.push.PushHub;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 异步行程计划生成服务
@@ -19,11 +25,32 @@ public class AsyncTripPlanService {
 
     private final LLMService llmService;
     private final LocationService locationService;
+    private final TripSnapshotService tripSnapshotService;
+    private final PushHub pushHub;
+    private final TripAccessGuard tripAccessGuard;
+    // 正在生成计划的行程及执行线程，用于删除行程时取消
+    private final Map<UUID, Thread> running = new ConcurrentHashMap<>();
 
     @Autowired
-    public AsyncTripPlanService(LLMService llmService, LocationService locationService) {
+    public AsyncTripPlanService(LLMService llmService, LocationService locationService, TripSnapshotService tripSnapshotService,
+                                PushHub pushHub, TripAccessGuard tripAccessGuard) {
         this.llmService = llmService;
         this.locationService = locationService;
+        this.tripSnapshotService = tripSnapshotService;
+        this.pushHub = pushHub;
+        this.tripAccessGuard = tripAccessGuard;
+    }
+
+    /**
+     * 取消行程正在进行的计划生成，生成结果不再写入
+     * 中断不会终止已发出的大模型请求，线程仍会等到响应返回后才丢弃结果；
+     * 尚在队列中的任务开始时会发现行程已删除而直接返回
+     */
+    public void cancel(UUID tripId) {
+        running.computeIfPresent(tripId, (id, thread) -> {
+            thread.interrupt();
+            return null;
+        });
     }
 
     /**
@@ -32,20 +59,65 @@ public class AsyncTripPlanService {
      */
     @Async
     public void generatePlanAsync(Trip trip) {
+        UUID tripId = trip.getId();
+        Thread current = Thread.currentThread();
+        running.put(tripId, current);
         try {
-            log.info("开始异步生成行程计划，Trip ID: {}", trip.getId());
+            // 排队期间行程已被删除
+            if (tripAccessGuard.ownerOf(tripId) == null) {
+                log.info("行程已删除，跳过计划生成，Trip ID: {}", tripId);
+                return;
+            }
+            log.info("开始异步生成行程计划，Trip ID: {}", tripId);
             
             // 调用LLMService生成行程计划
             List<DayPlanDTO> dayPlans = llmService.generatePlan(trip);
+            if (isCancelled(tripId, current)) {
+                log.info("行程计划生成已取消，Trip ID: {}", tripId);
+                return;
+            }
+            
+            // 保存位置信息到数据库；生成期间行程已被删除时不写入，也不通知客户端
+            if (!locationService.saveLocations(trip, dayPlans, TripVersionService.DESCRIPTION_GENERATED)) {
+                log.info("行程已删除，丢弃生成的计划，Trip ID: {}", tripId);
+                return;
+            }
             
-            // 保存位置信息到数据库
-            locationService.saveLocations(trip, dayPlans);
+            // 计划已提交，重建行程快照
+            tripSnapshotService.rebuild(tripId);
             
-            log.info("行程计划生成完成，Trip ID: {}", trip.getId());
+            log.info("行程计划生成完成，Trip ID: {}", tripId);
+            pushHub.publish(trip.getUser().getId(), PushEvent.PLAN_READY, planEvent(trip, null));
         } catch (Exception e) {
-            log.error("异步生成行程计划失败，Trip ID: {}", trip.getId(), e);
-            // 这里可以添加错误处理，比如发送通知或记录到数据库
+            if (isCancelled(tripId, current)) {
+                log.info("行程计划生成已取消，Trip ID: {}", tripId);
+                return;
+            }
+            log.error("异步生成行程计划失败，Trip ID: {}", tripId, e);
+            // 通知在线的客户端，客户端可提示用户重试
+            pushHub.publish(trip.getUser().getId(), PushEvent.PLAN_FAILED, planEvent(trip, "行程计划生成失败，请稍后重试"));
+        } finally {
+            running.remove(tripId, current);
+            // 清除取消时设置的中断标记，线程归还线程池后不影响下一个任务
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * cancel会先移除登记再中断线程，登记不再指向当前线程即表示已取消；
+     * 同一行程更新后开始的新一轮生成会替换登记，旧的一轮同样不再写入
+     */
+    private boolean isCancelled(UUID tripId, Thread current) {
+        return running.get(tripId) != current;
+    }
+
+    private static Map<String, Object> planEvent(Trip trip, String message) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("tripId", trip.getId());
+        if (message != null) {
+            payload.put("message", message);
         }
+        return payload;
     }
 }
 
@@ -1,5 +1,6 @@
 package com.aitravelplanner.backend.service;
 
+import com.aitravelplanner.backend.dto.BudgetBreakdownResponse;
 import com.aitravelplanner.backend.dto.BudgetResponse;
 import com.aitravelplanner.backend.model.User;
 
@@ -13,4 +14,12 @@ public interface BudgetService {
      * @return 包含预算信息的响应对象
      */
     BudgetResponse getBudgetStatus(UUID tripId, User user);
+
+    /**
+     * 获取行程的预算分析（按类别、按日期、燃尽和预计总花费）
+     * @param tripId 行程ID
+     * @param user 当前用户
+     * @return 预算分析
+     */
+    BudgetBreakdownResponse getBudgetBreakdown(UUID tripId, User user);
 }
\ No newline at end of file
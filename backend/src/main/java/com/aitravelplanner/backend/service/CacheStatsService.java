@@ -0,0 +1,75 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.CacheRegionStats;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 汇总各缓存区域的命中率
+ * 包括Hibernate二级缓存区域（trips、users、trip-preferences、查询缓存）和Spring应用缓存（tripLocations）
+ */
+@Service
+public class CacheStatsService {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public CacheStatsService(EntityManagerFactory entityManagerFactory, CacheManager cacheManager) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cacheManager = cacheManager;
+    }
+
+    public List<CacheRegionStats> getRegionStats() {
+        List<CacheRegionStats> result = new ArrayList<>();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            long size = region.getElementCountInMemory();
+            result.add(buildStats(regionName, "hibernate", region.getHitCount(), region.getMissCount(),
+                    region.getPutCount(), size < 0 ? -1 : size));
+        }
+
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+                continue;
+            }
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache =
+                    (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+            CacheStats stats = nativeCache.stats();
+            // Spring Cache直接调用put写入，Caffeine不统计写入次数
+            result.add(buildStats(cacheName, "spring", stats.hitCount(), stats.missCount(),
+                    -1, nativeCache.estimatedSize()));
+        }
+
+        return result;
+    }
+
+    private CacheRegionStats buildStats(String region, String type, long hits, long misses, long puts, long size) {
+        CacheRegionStats stats = new CacheRegionStats();
+        stats.setRegion(region);
+        stats.setType(type);
+        stats.setHits(hits);
+        stats.setMisses(misses);
+        stats.setPuts(puts);
+        stats.setSize(size);
+        long requests = hits + misses;
+        stats.setHitRatio(requests == 0 ? 0.0 : (double) hits / requests);
+        return stats;
+    }
+}
@@ -0,0 +1,87 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.TripRepository;
+import com.aitravelplanner.backend.repository.TripStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * 行程内容版本与ETag
+ * 行程和位置的版本来自Trip的planVersion和updatedAt（Trip在二级缓存中），
+ * 消费记录和预算的版本来自trip_stats中的expenseVersion（由TripStatsService维护）。
+ * 控制器先计算ETag，与If-None-Match一致时直接返回304，不进入查询和序列化逻辑。
+ */
+@Service
+public class ContentVersionService {
+
+    // 客户端可以缓存响应，但每次使用前都要带ETag重新验证
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final TripRepository tripRepository;
+    private final TripStatsRepository tripStatsRepository;
+    private final TripAccessGuard tripAccessGuard;
+    private final ExchangeRateTable exchangeRateTable;
+
+    @Autowired
+    public ContentVersionService(TripRepository tripRepository, TripStatsRepository tripStatsRepository, TripAccessGuard tripAccessGuard,
+                                 ExchangeRateTable exchangeRateTable) {
+        this.tripRepository = tripRepository;
+        this.tripStatsRepository = tripStatsRepository;
+        this.tripAccessGuard = tripAccessGuard;
+        this.exchangeRateTable = exchangeRateTable;
+    }
+
+    /**
+     * 行程详情及位置的ETag，同时验证用户权限
+     */
+    public String tripEtag(UUID tripId, User user) {
+        Trip trip = loadOwnedTrip(tripId, user);
+        return tripEtag(TripSnapshot.planVersionOf(trip), TripSnapshot.updatedAtMillisOf(trip));
+    }
+
+    public static String tripEtag(long planVersion, long updatedAtMillis) {
+        return "\"t" + planVersion + "-" + updatedAtMillis + "\"";
+    }
+
+    /**
+     * 消费记录列表的ETag，同时验证用户权限
+     */
+    public String expensesEtag(UUID tripId, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+        return "\"e" + expenseVersion(tripId) + "\"";
+    }
+
+    /**
+     * 预算状态的ETag，预算同时取决于行程总预算、消费记录和汇率
+     */
+    public String budgetEtag(UUID tripId, User user) {
+        Trip trip = loadOwnedTrip(tripId, user);
+        return "\"b" + expenseVersion(tripId) + "-" + TripSnapshot.updatedAtMillisOf(trip)
+                + "-" + Long.toHexString(exchangeRateTable.current().getVersion()) + "\"";
+    }
+
+    /**
+     * 预算分析的ETag，预计总花费还取决于当天日期
+     */
+    public String budgetBreakdownEtag(UUID tripId, User user) {
+        Trip trip = loadOwnedTrip(tripId, user);
+        return "\"bd" + expenseVersion(tripId) + "-" + TripSnapshot.updatedAtMillisOf(trip)
+                + "-" + Long.toHexString(exchangeRateTable.current().getVersion()) + "-" + LocalDate.now() + "\"";
+    }
+
+    private long expenseVersion(UUID tripId) {
+        return tripStatsRepository.findExpenseVersion(tripId).orElse(0L);
+    }
+
+    private Trip loadOwnedTrip(UUID tripId, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+        return tripRepository.findById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
+    }
+}
@@ -0,0 +1,135 @@
+package com.aitravelplanner.backend.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 逐条读取CSV记录（RFC 4180），只缓冲当前记录
+ * 支持引号包围的字段、字段内的转义引号和换行，以及CRLF/LF换行；自动去掉开头的BOM
+ */
+public final class CsvRecordReader implements Closeable {
+
+    private static final int NONE = -2;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final int maxRecordChars;
+    private int pushback = NONE;
+    private long line = 1;
+    private long recordLine = 0;
+    private boolean started = false;
+
+    public CsvRecordReader(Reader reader, char delimiter, int maxRecordChars) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * 读取下一条记录，没有更多记录时返回null
+     * 单条记录超过maxRecordChars或引号未闭合时抛出CsvFormatException
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        int chars = 0;
+
+        while (true) {
+            if (c == -1) {
+                if (inQuotes) {
+                    throw new CsvFormatException("Unterminated quoted field starting at line " + recordLine);
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            char ch = (char) c;
+            if (inQuotes) {
+                if (ch == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    if (ch == '\n') {
+                        line++;
+                    }
+                    field.append(ch);
+                }
+            } else if (ch == '"' && field.length() == 0) {
+                inQuotes = true;
+            } else if (ch == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\r' || ch == '\n') {
+                if (ch == '\r') {
+                    int n = read();
+                    if (n != '\n') {
+                        pushback = n;
+                    }
+                }
+                line++;
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append(ch);
+            }
+
+            if (++chars > maxRecordChars) {
+                throw new CsvFormatException("Record at line " + recordLine + " exceeds " + maxRecordChars + " characters");
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * 最近一次读取的记录起始行号（从1开始）
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private int read() throws IOException {
+        if (pushback != NONE) {
+            int c = pushback;
+            pushback = NONE;
+            return c;
+        }
+        return reader.read();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * CSV格式错误，出错位置之后的记录无法继续定位
+     * 继承IllegalArgumentException，未单独处理时按请求参数错误返回400
+     */
+    public static final class CsvFormatException extends IllegalArgumentException {
+
+        public CsvFormatException(String message) {
+            super(message);
+        }
+    }
+}
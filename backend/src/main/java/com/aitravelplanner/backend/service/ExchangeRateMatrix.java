@@ -0,0 +1,118 @@
+package com.aitravelplanner.backend.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 不可变的汇率矩阵
+ * 金额以各货币的最小单位（分、日元等）用long表示；factors[from][to] 为 from 的1个最小单位
+ * 折合多少 to 的最小单位，放大SCALE倍后取整。换算只有一次long乘法和一次除法，
+ * 溢出时退回BigInteger计算。由ExchangeRateTable构建并整体替换
+ */
+public final class ExchangeRateMatrix {
+
+    static final long SCALE = 1_000_000_000L;
+    private static final BigDecimal SCALE_DECIMAL = BigDecimal.valueOf(SCALE);
+
+    private final long version;
+    private final Map<String, Integer> index;
+    private final int[] fractionDigits;
+    private final long[][] factors;
+
+    /**
+     * @param ratesToBase 各货币1单位折合多少基准货币，必须包含基准货币本身（为1）
+     * @param version     汇率内容的版本，相同内容得到相同版本，用于ETag
+     */
+    ExchangeRateMatrix(Map<String, BigDecimal> ratesToBase, long version) {
+        int n = ratesToBase.size();
+        this.version = version;
+        this.fractionDigits = new int[n];
+        BigDecimal[] rates = new BigDecimal[n];
+        Map<String, Integer> positions = new HashMap<>();
+        int i = 0;
+        for (Map.Entry<String, BigDecimal> entry : ratesToBase.entrySet()) {
+            fractionDigits[i] = fractionDigitsOf(entry.getKey());
+            rates[i] = entry.getValue();
+            positions.put(entry.getKey(), i);
+            i++;
+        }
+        this.index = Collections.unmodifiableMap(positions);
+
+        // factor = rate(from) / rate(to) * 10^(digits(to) - digits(from)) * SCALE
+        this.factors = new long[n][n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                factors[from][to] = rates[from].divide(rates[to], MathContext.DECIMAL128)
+                        .scaleByPowerOfTen(fractionDigits[to] - fractionDigits[from])
+                        .multiply(SCALE_DECIMAL)
+                        .setScale(0, RoundingMode.HALF_UP)
+                        .longValueExact();
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 货币在矩阵中的位置，没有汇率时返回-1
+     */
+    public int indexOf(String currency) {
+        Integer position = currency != null ? index.get(currency) : null;
+        return position != null ? position : -1;
+    }
+
+    /**
+     * 金额转为最小单位，多余的小数位四舍五入
+     */
+    public long toMinor(BigDecimal amount, int currencyIndex) {
+        return amount.movePointRight(fractionDigits[currencyIndex]).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public BigDecimal fromMinor(long minor, int currencyIndex) {
+        return BigDecimal.valueOf(minor, fractionDigits[currencyIndex]);
+    }
+
+    /**
+     * 最小单位金额换算，结果四舍五入到目标货币的最小单位
+     */
+    public long convert(long minor, int from, int to) {
+        if (from == to) {
+            return minor;
+        }
+        long factor = factors[from][to];
+        long product;
+        try {
+            product = Math.multiplyExact(minor, factor);
+        } catch (ArithmeticException e) {
+            BigInteger[] qr = BigInteger.valueOf(minor).multiply(BigInteger.valueOf(factor))
+                    .divideAndRemainder(BigInteger.valueOf(SCALE));
+            long quotient = qr[0].longValueExact();
+            return qr[1].abs().shiftLeft(1).compareTo(BigInteger.valueOf(SCALE)) >= 0
+                    ? quotient + qr[1].signum() : quotient;
+        }
+        long quotient = product / SCALE;
+        long remainder = product % SCALE;
+        return Math.abs(remainder) * 2 >= SCALE ? quotient + Long.signum(product) : quotient;
+    }
+
+    /**
+     * 将一笔原币金额换算为目标货币的最小单位
+     */
+    public long toMinor(BigDecimal amount, int from, int to) {
+        return convert(toMinor(amount, from), from, to);
+    }
+
+    public static int fractionDigitsOf(String currency) {
+        int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+        // 贵金属等没有小数位定义的代码按两位处理
+        return digits >= 0 ? digits : 2;
+    }
+}
@@ -0,0 +1,162 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.ExchangeRate;
+import com.aitravelplanner.backend.repository.ExchangeRateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 内存中的汇率表
+ * 汇率保存在exchange_rates表中，启动时及之后每隔currency.rates.reload-ms重新加载，
+ * 构建为ExchangeRateMatrix后整体替换，读取时不加锁也不查询数据库。
+ * 表为空时从currency.rates.seed（CSV: currency,rate_to_base）写入一份参考汇率
+ */
+@Component
+@Slf4j
+public class ExchangeRateTable {
+
+    // 消费记录未填写货币时的默认货币
+    public static final String DEFAULT_CURRENCY = "CNY";
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ResourceLoader resourceLoader;
+    private final String baseCurrency;
+    private final String seedLocation;
+    private volatile ExchangeRateMatrix matrix;
+
+    @Autowired
+    public ExchangeRateTable(ExchangeRateRepository exchangeRateRepository, ResourceLoader resourceLoader,
+                             @Value("${currency.base:CNY}") String baseCurrency,
+                             @Value("${currency.rates.seed:classpath:exchange-rates.csv}") String seedLocation) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.resourceLoader = resourceLoader;
+        this.baseCurrency = normalizeCurrency(baseCurrency);
+        this.seedLocation = seedLocation;
+        this.matrix = build(new TreeMap<>());
+    }
+
+    /**
+     * 统一货币代码：去空格、转大写，空值取默认货币；不是ISO 4217代码时抛出IllegalArgumentException
+     */
+    public static String normalizeCurrency(String currency) {
+        if (currency == null || currency.trim().isEmpty()) {
+            return DEFAULT_CURRENCY;
+        }
+        String code = currency.trim().toUpperCase(Locale.ROOT);
+        try {
+            Currency.getInstance(code);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        return code;
+    }
+
+    /**
+     * 汇总时使用的货币键：去空格、转大写，空值取默认货币，不做校验（兼容早期写入的数据）
+     */
+    public static String currencyKey(String currency) {
+        if (currency == null || currency.trim().isEmpty()) {
+            return DEFAULT_CURRENCY;
+        }
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * 当前的汇率矩阵，调用方在一次计算中应只取一次，保证使用同一份汇率
+     */
+    public ExchangeRateMatrix current() {
+        return matrix;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${currency.rates.reload-ms:600000}", initialDelayString = "${currency.rates.reload-ms:600000}")
+    public void reload() {
+        try {
+            List<ExchangeRate> rates = exchangeRateRepository.findAll();
+            if (rates.isEmpty()) {
+                rates = seed();
+            }
+            TreeMap<String, BigDecimal> ratesToBase = new TreeMap<>();
+            for (ExchangeRate rate : rates) {
+                if (rate.getRateToBase() == null || rate.getRateToBase().signum() <= 0) {
+                    log.warn("Ignoring invalid exchange rate for {}", rate.getCurrency());
+                    continue;
+                }
+                String currency;
+                try {
+                    currency = normalizeCurrency(rate.getCurrency());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring exchange rate for unsupported currency {}", rate.getCurrency());
+                    continue;
+                }
+                ratesToBase.put(currency, rate.getRateToBase());
+            }
+            ExchangeRateMatrix loaded = build(ratesToBase);
+            if (loaded.getVersion() != matrix.getVersion()) {
+                matrix = loaded;
+                log.info("Loaded {} exchange rates (base {})", ratesToBase.size(), baseCurrency);
+            }
+        } catch (RuntimeException e) {
+            // 加载失败时继续使用上一份汇率
+            log.warn("Failed to reload exchange rates, keeping version {}", matrix.getVersion(), e);
+        }
+    }
+
+    private ExchangeRateMatrix build(TreeMap<String, BigDecimal> ratesToBase) {
+        ratesToBase.put(baseCurrency, BigDecimal.ONE);
+        // 版本取自汇率内容，各实例加载同一份汇率时ETag一致
+        CRC32 crc = new CRC32();
+        for (Map.Entry<String, BigDecimal> entry : ratesToBase.entrySet()) {
+            String line = entry.getKey() + "=" + entry.getValue().stripTrailingZeros().toPlainString() + ";";
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return new ExchangeRateMatrix(ratesToBase, crc.getValue());
+    }
+
+    private List<ExchangeRate> seed() {
+        List<ExchangeRate> rates = new ArrayList<>();
+        Resource resource = resourceLoader.getResource(seedLocation);
+        if (!resource.exists()) {
+            return rates;
+        }
+        try (CsvRecordReader csv = new CsvRecordReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8), ',', 1024)) {
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() < 2 || record.get(0).trim().startsWith("#") || "currency".equalsIgnoreCase(record.get(0).trim())) {
+                    continue;
+                }
+                ExchangeRate rate = new ExchangeRate();
+                rate.setCurrency(normalizeCurrency(record.get(0)));
+                rate.setRateToBase(new BigDecimal(record.get(1).trim()));
+                rates.add(rate);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read exchange rate seed " + seedLocation, e);
+        }
+        log.info("Seeding {} reference exchange rates from {}", rates.size(), seedLocation);
+        return exchangeRateRepository.saveAll(rates);
+    }
+}
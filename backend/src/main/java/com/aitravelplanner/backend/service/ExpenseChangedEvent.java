@@ -0,0 +1,16 @@
+package com.aitravelplanner.backend.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 行程的消费记录发生变化（新增、批量导入、修改、删除）
+ * 由TripStatsService在同一事务中发布，监听方应在事务提交后处理
+ */
+@Getter
+@AllArgsConstructor
+public class ExpenseChangedEvent {
+    private final UUID tripId;
+}
@@ -0,0 +1,269 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.ExpenseImportReport;
+import com.aitravelplanner.backend.model.Expense;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.ExpenseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 从CSV（表格导出、银行卡账单）流式导入消费记录
+ * 逐条解析请求体，按固定大小分块写入并逐块提交，内存占用与文件大小无关；
+ * 无效的行跳过并写入错误报告，不影响其他行
+ */
+@Service
+@Slf4j
+public class ExpenseImportService {
+
+    private static final String FIELD_AMOUNT = "amount";
+    private static final String FIELD_CURRENCY = "currency";
+    private static final String FIELD_COMMENT = "comment";
+    private static final String FIELD_CATEGORY = "category";
+    private static final String FIELD_DATE = "expenseDate";
+
+    // 表头别名（小写），覆盖常见的表格和银行账单列名
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        alias(FIELD_AMOUNT, "amount", "金额", "交易金额", "消费金额", "支出", "支出金额");
+        alias(FIELD_CURRENCY, "currency", "币种", "货币", "交易币种");
+        alias(FIELD_COMMENT, "comment", "description", "说明", "备注", "摘要", "交易描述", "商户名称", "交易说明");
+        alias(FIELD_CATEGORY, "category", "类别", "分类", "消费类别");
+        alias(FIELD_DATE, "expensedate", "date", "日期", "交易日期", "消费日期", "记账日期", "交易时间");
+    }
+
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("yyyy/M/d"),
+            DateTimeFormatter.ofPattern("yyyy.M.d"),
+            DateTimeFormatter.BASIC_ISO_DATE
+    };
+
+    private final ExpenseRepository expenseRepository;
+    private final TripStatsService tripStatsService;
+    private final TripAccessGuard tripAccessGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxErrors;
+    private final int maxRecordChars;
+
+    @Autowired
+    public ExpenseImportService(ExpenseRepository expenseRepository,
+                                TripStatsService tripStatsService,
+                                TripAccessGuard tripAccessGuard,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${expense.import.chunk-size:500}") int chunkSize,
+                                @Value("${expense.import.max-errors:1000}") int maxErrors,
+                                @Value("${expense.import.max-record-chars:65536}") int maxRecordChars) {
+        this.expenseRepository = expenseRepository;
+        this.tripStatsService = tripStatsService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * 导入CSV，第一条记录为表头；必须包含金额列
+     * 每个分块在独立事务中提交，中途失败时已提交的分块保留，报告中给出终止原因
+     */
+    public ExpenseImportReport importCsv(UUID tripId, InputStream input, Charset charset, char delimiter, User user) throws IOException {
+        // 验证用户权限
+        tripAccessGuard.requireOwner(tripId, user);
+
+        ExpenseImportReport report = new ExpenseImportReport();
+        CsvRecordReader csv = new CsvRecordReader(new BufferedReader(new InputStreamReader(input, charset)), delimiter, maxRecordChars);
+
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV is empty");
+        }
+        Map<String, Integer> columns = mapColumns(header);
+        if (!columns.containsKey(FIELD_AMOUNT)) {
+            throw new IllegalArgumentException("CSV header must contain an amount column");
+        }
+
+        Instant start = Instant.now();
+        long sequence = 0;
+        List<Expense> chunk = new ArrayList<>(chunkSize);
+        try {
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (isBlank(record)) {
+                    continue;
+                }
+                report.setRowsRead(report.getRowsRead() + 1);
+                try {
+                    Expense expense = parseRecord(record, columns);
+                    expense.setId(UUID.randomUUID());
+                    // createdAt逐条递增1微秒，保持文件中的顺序
+                    expense.setCreatedAt(start.plus(sequence++, ChronoUnit.MICROS));
+                    chunk.add(expense);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    addError(report, csv.getRecordLine(), e.getMessage());
+                    continue;
+                }
+                if (chunk.size() >= chunkSize) {
+                    flush(tripId, user.getId(), chunk, report);
+                }
+            }
+            flush(tripId, user.getId(), chunk, report);
+        } catch (CsvRecordReader.CsvFormatException e) {
+            // CSV格式错误（引号未闭合、记录过长）无法继续定位后续记录
+            report.setAbortReason(e.getMessage());
+        } catch (DataAccessException e) {
+            log.warn("Expense import for trip {} aborted after {} rows", tripId, report.getImported(), e);
+            report.setAbortReason("Import aborted at line " + csv.getRecordLine() + ": database write failed");
+        }
+        return report;
+    }
+
+    private void flush(UUID tripId, UUID userId, List<Expense> chunk, ExpenseImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Map<String, BigDecimal> chunkTotals = new HashMap<>();
+        for (Expense expense : chunk) {
+            chunkTotals.merge(ExchangeRateTable.currencyKey(expense.getCurrency()), expense.getAmount(), BigDecimal::add);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            expenseRepository.bulkInsert(tripId, userId, chunk);
+            tripStatsService.recordExpenseChanges(tripId, chunkTotals);
+        });
+        report.setImported(report.getImported() + chunk.size());
+        chunk.clear();
+    }
+
+    private Expense parseRecord(List<String> record, Map<String, Integer> columns) {
+        Expense expense = new Expense();
+
+        String amount = value(record, columns, FIELD_AMOUNT);
+        if (amount == null) {
+            throw new IllegalArgumentException("Amount is required");
+        }
+        expense.setAmount(parseAmount(amount));
+
+        String currency = value(record, columns, FIELD_CURRENCY);
+        if (currency != null) {
+            expense.setCurrency(ExchangeRateTable.normalizeCurrency(currency));
+        }
+        expense.setComment(value(record, columns, FIELD_COMMENT));
+        expense.setCategory(value(record, columns, FIELD_CATEGORY));
+
+        String date = value(record, columns, FIELD_DATE);
+        if (date != null) {
+            expense.setExpenseDate(parseDate(date));
+        }
+        return expense;
+    }
+
+    /**
+     * 解析金额，去掉货币符号和千分位，括号表示负数（退款）
+     */
+    static BigDecimal parseAmount(String raw) {
+        String text = raw.trim();
+        boolean negative = text.startsWith("(") && text.endsWith(")");
+        if (negative) {
+            text = text.substring(1, text.length() - 1);
+        }
+        text = text.replace(",", "").replace("¥", "").replace("￥", "").replace("$", "").replace("€", "").trim();
+        try {
+            BigDecimal amount = new BigDecimal(text);
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + raw);
+        }
+    }
+
+    /**
+     * 支持 2024-01-31、2024/1/31、2024.1.31、20240131，带时间时只取日期部分
+     */
+    static LocalDate parseDate(String raw) {
+        String text = raw.trim();
+        int space = text.indexOf(' ');
+        if (space > 0) {
+            text = text.substring(0, space);
+        }
+        int t = text.indexOf('T');
+        if (t > 0) {
+            text = text.substring(0, t);
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format);
+            } catch (DateTimeParseException ignored) {
+                // 尝试下一种格式
+            }
+        }
+        throw new IllegalArgumentException("Invalid date: " + raw);
+    }
+
+    private static Map<String, Integer> mapColumns(List<String> header) {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String field = HEADER_ALIASES.get(header.get(i).trim().toLowerCase(Locale.ROOT));
+            if (field != null && !columns.containsKey(field)) {
+                columns.put(field, i);
+            }
+        }
+        return columns;
+    }
+
+    private static String value(List<String> record, Map<String, Integer> columns, String field) {
+        Integer index = columns.get(field);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static boolean isBlank(List<String> record) {
+        for (String value : record) {
+            if (!value.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addError(ExpenseImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new ExpenseImportReport.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static void alias(String field, String... names) {
+        for (String name : names) {
+            HEADER_ALIASES.put(name, field);
+        }
+    }
+}
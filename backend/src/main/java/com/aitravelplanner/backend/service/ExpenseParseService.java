@@ -0,0 +1,75 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.TripRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * 一句话记账：先用本地规则解析，置信度低于阈值时才调用大模型
+ * 常见的短句（“打车 35 元”）在本地即可得到完整结果，不产生大模型的延迟和费用
+ */
+@Service
+@Slf4j
+public class ExpenseParseService {
+
+    private final ExpenseTextParser expenseTextParser;
+    private final LLMService llmService;
+    private final TripRepository tripRepository;
+    private final TripAccessGuard tripAccessGuard;
+    private final boolean llmFallbackEnabled;
+    private final double minConfidence;
+
+    @Autowired
+    public ExpenseParseService(ExpenseTextParser expenseTextParser,
+                               LLMService llmService,
+                               TripRepository tripRepository,
+                               TripAccessGuard tripAccessGuard,
+                               @Value("${expense.parse.llm-fallback.enabled:true}") boolean llmFallbackEnabled,
+                               @Value("${expense.parse.llm-fallback.min-confidence:0.6}") double minConfidence) {
+        this.expenseTextParser = expenseTextParser;
+        this.llmService = llmService;
+        this.tripRepository = tripRepository;
+        this.tripAccessGuard = tripAccessGuard;
+        this.llmFallbackEnabled = llmFallbackEnabled;
+        this.minConfidence = minConfidence;
+    }
+
+    /**
+     * 解析一句话记账，不保存消费记录；未写明货币时使用行程的预算货币
+     */
+    public ExpenseParseResponse parse(UUID tripId, String text, User user) {
+        // 验证用户权限，行程本身来自二级缓存
+        tripAccessGuard.requireOwner(tripId, user);
+        Trip trip = tripRepository.findById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
+        String defaultCurrency = ExchangeRateTable.currencyKey(trip.getBudgetCurrency());
+        LocalDate today = LocalDate.now();
+
+        ExpenseParseResponse result = expenseTextParser.parse(text, defaultCurrency, today);
+        if (!llmFallbackEnabled || result.getConfidence() >= minConfidence) {
+            return result;
+        }
+
+        ExpenseParseResponse llmResult = llmService.parseExpense(text, defaultCurrency, today);
+        if (llmResult == null || llmResult.getAmount() == null) {
+            log.debug("LLM could not parse expense text, using rule result (confidence {})", result.getConfidence());
+            return result;
+        }
+        try {
+            llmResult.setCurrency(ExchangeRateTable.normalizeCurrency(llmResult.getCurrency()));
+        } catch (IllegalArgumentException e) {
+            llmResult.setCurrency(defaultCurrency);
+        }
+        llmResult.setConfidence(result.getConfidence());
+        llmResult.setSource(ExpenseParseResponse.SOURCE_LLM);
+        return llmResult;
+    }
+}
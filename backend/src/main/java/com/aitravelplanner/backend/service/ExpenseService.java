@@ -1,6 +1,8 @@
 package com.aitravelplanner.backend.service;
 
+import com.aitravelplanner.backend.dto.ExpenseQuery;
 import com.aitravelplanner.backend.dto.ExpenseResponse;
+import com.aitravelplanner.backend.dto.PageResponse;
 import com.aitravelplanner.backend.model.User;
 
 import java.util.List;
@@ -33,6 +35,11 @@ public interface ExpenseService {
      */
     List<ExpenseResponse> getTripExpenses(UUID tripId, User user);
     
+    /**
+     * 按游标分页获取行程的消费记录，支持日期范围和类别过滤
+     */
+    PageResponse<ExpenseResponse> getTripExpensesPage(UUID tripId, ExpenseQuery query, User user);
+    
     /**
      * 获取单个消费记录详情
      */
@@ -0,0 +1,538 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地规则解析一句话记账（中文/英文），提取金额、货币、类别和日期
+ * 正则在类加载时编译，类别和货币单位用字典树按最长匹配查找，单次解析只扫描几遍短文本，不调用外部服务；
+ * 解析结果带置信度，调用方在置信度不足时再交给大模型
+ */
+@Component
+public class ExpenseTextParser {
+
+    public static final String CATEGORY_FOOD = "餐饮";
+    public static final String CATEGORY_LODGING = "住宿";
+    public static final String CATEGORY_TRANSPORT = "交通";
+    public static final String CATEGORY_ATTRACTION = "景点";
+    public static final String CATEGORY_SHOPPING = "购物";
+    public static final String CATEGORY_ENTERTAINMENT = "娱乐";
+    public static final String CATEGORY_OTHER = "其他";
+
+    private static final String CHINESE_DIGITS = "零〇一二两三四五六七八九";
+    private static final int[] CHINESE_DIGIT_VALUES = {0, 0, 1, 2, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    // 日期：2024-01-31、2024/1/31；1月31日；1/31；相对日期；N天前；周几
+    private static final Pattern ISO_DATE = Pattern.compile("(\\d{4})[-/.](\\d{1,2})[-/.](\\d{1,2})");
+    private static final Pattern CHINESE_DATE = Pattern.compile("(?:(\\d{4})年)?(\\d{1,2})月(\\d{1,2})[日号]");
+    private static final Pattern SLASH_DATE = Pattern.compile("(?<![\\d.])(\\d{1,2})/(\\d{1,2})(?![\\d/])");
+    private static final Pattern RELATIVE_DATE = Pattern.compile(
+            "大前天|前天|昨天|昨日|昨晚|今天|今日|今早|今晚|明天|day before yesterday|yesterday|last night|today|tonight|this morning|tomorrow");
+    private static final Pattern DAYS_AGO = Pattern.compile(
+            "(\\d{1,2}|[一两二三四五六七八九十]{1,2})\\s*天前|(\\d{1,2})\\s*days?\\s+ago");
+    private static final Pattern CHINESE_WEEKDAY = Pattern.compile("(上)?(?:周|星期|礼拜)([一二三四五六日天])");
+    private static final Pattern ENGLISH_WEEKDAY = Pattern.compile(
+            "(?:last\\s+)?(monday|tuesday|wednesday|thursday|friday|saturday|sunday)");
+
+    // 金额：阿拉伯数字（可带千分位和小数）或中文数字
+    private static final Pattern NUMBER = Pattern.compile(
+            "(?<![\\d.,])(\\d{1,3}(?:,\\d{3})+|\\d+)(\\.\\d+)?(?![\\d])|([零〇一二两三四五六七八九十百千万]+)");
+
+    private static final Map<String, Integer> RELATIVE_DAYS = new HashMap<>();
+    private static final Map<String, DayOfWeek> ENGLISH_DAYS = new HashMap<>();
+
+    // 金额后面的货币单位（“日元”比“元”长，最长匹配保证先识别前者）
+    private static final KeywordTrie<String> CURRENCY_SUFFIXES = new KeywordTrie<>();
+    // 金额前面的货币符号或代码
+    private static final KeywordTrie<String> CURRENCY_PREFIXES = new KeywordTrie<>();
+    // 数量单位：后面跟这些词的数字不是金额，如“3张门票”、“7pm”
+    private static final KeywordTrie<Boolean> QUANTITY_UNITS = new KeywordTrie<>();
+    private static final KeywordTrie<String> CATEGORY_KEYWORDS = new KeywordTrie<>();
+
+    // 人民币和日元共用的符号，按行程的预算货币判断
+    private static final String YEN_SIGN = "¥";
+
+    static {
+        RELATIVE_DAYS.put("大前天", -3);
+        RELATIVE_DAYS.put("前天", -2);
+        RELATIVE_DAYS.put("day before yesterday", -2);
+        for (String word : new String[]{"昨天", "昨日", "昨晚", "yesterday", "last night"}) {
+            RELATIVE_DAYS.put(word, -1);
+        }
+        for (String word : new String[]{"今天", "今日", "今早", "今晚", "today", "tonight", "this morning"}) {
+            RELATIVE_DAYS.put(word, 0);
+        }
+        RELATIVE_DAYS.put("明天", 1);
+        RELATIVE_DAYS.put("tomorrow", 1);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            ENGLISH_DAYS.put(day.name().toLowerCase(Locale.ROOT), day);
+        }
+
+        suffix("CNY", "元", "块", "块钱", "元钱", "人民币", "rmb", "cny", "yuan", "kuai");
+        suffix("JPY", "日元", "日币", "円", "yen", "jpy");
+        suffix("USD", "美元", "美金", "刀", "usd", "dollar", "dollars", "bucks");
+        suffix("EUR", "欧元", "eur", "euro", "euros");
+        suffix("GBP", "英镑", "gbp", "pound", "pounds");
+        suffix("HKD", "港币", "港元", "hkd");
+        suffix("TWD", "新台币", "台币", "twd");
+        suffix("KRW", "韩元", "韩币", "krw", "won");
+        suffix("THB", "泰铢", "thb", "baht");
+        suffix("SGD", "新加坡元", "新币", "sgd");
+        suffix("AUD", "澳元", "澳币", "aud");
+        prefix("CNY", "￥", "rmb", "cny");
+        prefix(YEN_SIGN, "¥");
+        prefix("JPY", "jpy", "円");
+        prefix("USD", "$", "us$", "usd");
+        prefix("EUR", "€", "eur");
+        prefix("GBP", "£", "gbp");
+        prefix("HKD", "hk$", "hkd");
+        prefix("KRW", "₩", "krw");
+        prefix("THB", "฿", "thb");
+
+        for (String unit : new String[]{"点", "点钟", "人", "位", "个", "张", "杯", "瓶", "份", "件", "碗", "晚", "夜", "天", "次", "号",
+                "公里", "小时", "分钟", "%", "am", "pm", "km", "h", "x", "pcs", "people", "person", "persons", "pax",
+                "night", "nights", "ticket", "tickets", "cups", "hours", "hour", "minutes", "days", "day"}) {
+            QUANTITY_UNITS.put(unit, Boolean.TRUE);
+        }
+
+        category(CATEGORY_FOOD, "吃", "吃饭", "饭", "早餐", "早饭", "午餐", "午饭", "晚餐", "晚饭", "夜宵", "宵夜", "餐", "餐厅", "外卖",
+                "咖啡", "奶茶", "饮料", "矿泉水", "水", "茶", "小吃", "火锅", "烧烤", "拉面", "寿司", "啤酒", "酒", "零食", "面包", "甜品", "水果",
+                "breakfast", "lunch", "dinner", "brunch", "meal", "food", "coffee", "tea", "drink", "drinks", "snack", "snacks",
+                "restaurant", "cafe", "beer", "ramen", "sushi", "pizza", "burger");
+        category(CATEGORY_LODGING, "酒店", "宾馆", "旅馆", "民宿", "住宿", "房费", "客栈", "青旅", "青年旅舍", "旅店", "温泉旅馆",
+                "hotel", "hostel", "motel", "inn", "airbnb", "accommodation", "ryokan", "room");
+        category(CATEGORY_TRANSPORT, "打车", "出租", "出租车", "的士", "滴滴", "网约车", "地铁", "公交", "巴士", "大巴", "高铁", "动车",
+                "火车", "机票", "飞机", "航班", "渡轮", "轮渡", "加油", "油费", "停车", "停车费", "过路费", "租车", "车费", "车票",
+                "单车", "新干线", "taxi", "uber", "grab", "cab", "metro", "subway", "bus", "train", "flight", "airfare", "ferry",
+                "fuel", "gas", "parking", "toll", "car rental", "shinkansen", "jr pass");
+        category(CATEGORY_ATTRACTION, "门票", "景点", "景区", "博物馆", "美术馆", "公园", "寺", "庙", "故宫", "长城", "展览", "动物园",
+                "水族馆", "索道", "缆车", "导游", "讲解", "admission", "entrance", "museum", "temple", "shrine", "park", "tour",
+                "guide", "zoo", "aquarium", "gallery", "castle", "sightseeing");
+        category(CATEGORY_SHOPPING, "购物", "买", "纪念品", "特产", "伴手礼", "手信", "衣服", "鞋", "化妆品", "免税", "免税店", "超市",
+                "便利店", "商场", "礼物", "药", "药店", "shopping", "souvenir", "souvenirs", "gift", "gifts", "clothes", "shoes",
+                "supermarket", "store", "mall", "pharmacy", "cosmetics", "duty free");
+        category(CATEGORY_ENTERTAINMENT, "电影", "ktv", "唱歌", "酒吧", "演出", "演唱会", "音乐会", "话剧", "游乐园", "迪士尼", "环球影城",
+                "按摩", "足疗", "温泉", "游戏", "桑拿", "滑雪", "潜水", "movie", "cinema", "bar", "pub", "concert", "show",
+                "karaoke", "massage", "spa", "onsen", "disney", "theme park", "club", "skiing", "diving");
+        category(CATEGORY_OTHER, "小费", "手续费", "签证", "保险", "电话卡", "流量", "话费", "tip", "tips", "visa", "insurance", "sim",
+                "fee");
+    }
+
+    /**
+     * 解析一句话记账
+     * @param text 原始文本
+     * @param defaultCurrency 文本中没有货币时使用的货币（行程的预算货币）
+     * @param today 相对日期的基准
+     */
+    public ExpenseParseResponse parse(String text, String defaultCurrency, LocalDate today) {
+        String lower = text.trim().toLowerCase(Locale.ROOT);
+        // 已被日期、金额和货币占用的字符替换为空格，剩余部分作为说明
+        char[] rest = lower.toCharArray();
+
+        ExpenseParseResponse result = new ExpenseParseResponse();
+        result.setSource(ExpenseParseResponse.SOURCE_RULES);
+        result.setExpenseDate(parseDate(lower, rest, today));
+
+        double confidence = 0;
+        Amount amount = findAmount(new String(rest), defaultCurrency);
+        if (amount != null) {
+            result.setAmount(amount.value);
+            result.setCurrency(amount.currency != null ? amount.currency : defaultCurrency);
+            mask(rest, amount.start, amount.end);
+            confidence += 0.45;
+            confidence += amount.currency != null ? 0.2 : 0;
+            confidence += amount.ambiguous ? -0.15 : 0.1;
+        } else {
+            result.setCurrency(defaultCurrency);
+        }
+
+        String category = findCategory(lower);
+        if (category != null) {
+            result.setCategory(category);
+            confidence += 0.25;
+        } else {
+            result.setCategory(CATEGORY_OTHER);
+        }
+
+        result.setComment(comment(text.trim(), rest));
+        result.setConfidence(Math.max(0, Math.min(1, Math.round(confidence * 100) / 100.0)));
+        return result;
+    }
+
+    /**
+     * 是否为约定的类别之一
+     */
+    public static boolean isCategory(String category) {
+        return CATEGORY_FOOD.equals(category) || CATEGORY_LODGING.equals(category) || CATEGORY_TRANSPORT.equals(category)
+                || CATEGORY_ATTRACTION.equals(category) || CATEGORY_SHOPPING.equals(category)
+                || CATEGORY_ENTERTAINMENT.equals(category) || CATEGORY_OTHER.equals(category);
+    }
+
+    private static LocalDate parseDate(String text, char[] rest, LocalDate today) {
+        Matcher m = ISO_DATE.matcher(text);
+        if (m.find()) {
+            LocalDate date = date(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+            if (date != null) {
+                mask(rest, m.start(), m.end());
+                return date;
+            }
+        }
+        m = CHINESE_DATE.matcher(text);
+        if (m.find()) {
+            int year = m.group(1) != null ? Integer.parseInt(m.group(1)) : today.getYear();
+            LocalDate date = date(year, Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+            if (date != null) {
+                mask(rest, m.start(), m.end());
+                return date;
+            }
+        }
+        m = SLASH_DATE.matcher(text);
+        if (m.find()) {
+            LocalDate date = date(today.getYear(), Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+            if (date != null) {
+                mask(rest, m.start(), m.end());
+                return date;
+            }
+        }
+        m = DAYS_AGO.matcher(text);
+        if (m.find()) {
+            int days = m.group(1) != null ? (int) parseNumber(m.group(1)) : Integer.parseInt(m.group(2));
+            mask(rest, m.start(), m.end());
+            return today.minusDays(days);
+        }
+        m = RELATIVE_DATE.matcher(text);
+        if (m.find()) {
+            mask(rest, m.start(), m.end());
+            return today.plusDays(RELATIVE_DAYS.get(m.group()));
+        }
+        m = CHINESE_WEEKDAY.matcher(text);
+        if (m.find()) {
+            char c = m.group(2).charAt(0);
+            DayOfWeek day = c == '日' || c == '天' ? DayOfWeek.SUNDAY : DayOfWeek.of(CHINESE_DIGIT_VALUES[CHINESE_DIGITS.indexOf(c)]);
+            mask(rest, m.start(), m.end());
+            if (m.group(1) != null) {
+                // 上周X：上一个自然周（周一开始）中的那一天
+                return today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).minusWeeks(1).with(TemporalAdjusters.nextOrSame(day));
+            }
+            return today.with(TemporalAdjusters.previousOrSame(day));
+        }
+        m = ENGLISH_WEEKDAY.matcher(text);
+        if (m.find() && isWordBoundary(text, m.start(), m.end())) {
+            mask(rest, m.start(), m.end());
+            return today.with(TemporalAdjusters.previous(ENGLISH_DAYS.get(m.group(1))));
+        }
+        return today;
+    }
+
+    /**
+     * 找出最可能是金额的数字：紧邻货币单位或符号的优先，其次是阿拉伯数字；
+     * 后面跟数量单位的数字不是金额，中文数字只在紧跟货币单位或带有十、百、千、万时才算金额
+     */
+    private static Amount findAmount(String text, String defaultCurrency) {
+        List<Amount> candidates = new ArrayList<>(2);
+        Matcher m = NUMBER.matcher(text);
+        while (m.find()) {
+            boolean chinese = m.group(3) != null;
+            int end = m.end();
+            int next = skipSpaces(text, end);
+            if (QUANTITY_UNITS.longestMatch(text, next, true) != null && CURRENCY_SUFFIXES.longestMatch(text, next, true) == null) {
+                continue;
+            }
+
+            Amount amount = new Amount();
+            amount.start = m.start();
+            amount.end = end;
+            KeywordTrie.Match<String> suffix = CURRENCY_SUFFIXES.longestMatch(text, next, true);
+            if (suffix != null) {
+                amount.currency = suffix.value;
+                amount.end = suffix.end;
+            } else {
+                KeywordTrie.Match<String> prefix = findPrefix(text, m.start());
+                if (prefix != null) {
+                    amount.currency = YEN_SIGN.equals(prefix.value) ? ("JPY".equals(defaultCurrency) ? "JPY" : "CNY") : prefix.value;
+                    amount.start = prefix.start;
+                }
+            }
+            if (chinese && amount.currency == null && !hasChineseUnit(m.group(3))) {
+                // 没有货币单位的单个中文数字多是普通用词，如“一起”
+                continue;
+            }
+
+            try {
+                amount.value = chinese ? BigDecimal.valueOf(parseNumber(m.group(3)))
+                        : new BigDecimal(m.group(1).replace(",", "") + (m.group(2) != null ? m.group(2) : ""));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (suffix != null && "块".equals(text.substring(suffix.start, suffix.end))) {
+                // “三块五”、“3块5”：块后面的单个数字是角
+                int tenths = tenthsAt(text, suffix.end);
+                if (tenths >= 0) {
+                    amount.value = amount.value.add(BigDecimal.valueOf(tenths, 1));
+                    amount.end = suffix.end + 1;
+                }
+            }
+            amount.score = (amount.currency != null ? 2 : 0) + (chinese ? 0 : 1);
+            candidates.add(amount);
+        }
+
+        Amount best = null;
+        for (Amount candidate : candidates) {
+            if (best == null || candidate.score > best.score) {
+                best = candidate;
+            } else if (candidate.score == best.score) {
+                best.ambiguous = true;
+            }
+        }
+        if (best != null && best.value.signum() == 0) {
+            return null;
+        }
+        return best;
+    }
+
+    private static KeywordTrie.Match<String> findPrefix(String text, int numberStart) {
+        int end = numberStart;
+        while (end > 0 && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        // 货币符号和代码最长4个字符，如“hk$”
+        for (int start = Math.max(0, end - 4); start < end; start++) {
+            KeywordTrie.Match<String> match = CURRENCY_PREFIXES.longestMatch(text, start, true);
+            if (match != null && match.end == end) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按关键词累计各类别的得分（关键词越长越可信），取得分最高的类别
+     */
+    private static String findCategory(String text) {
+        Map<String, Integer> scores = new HashMap<>(4);
+        int i = 0;
+        while (i < text.length()) {
+            KeywordTrie.Match<String> match = CATEGORY_KEYWORDS.longestMatch(text, i, true);
+            if (match == null) {
+                i++;
+                continue;
+            }
+            scores.merge(match.value, match.end - match.start, Integer::sum);
+            i = match.end;
+        }
+        String best = null;
+        int bestScore = 0;
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            if (entry.getValue() > bestScore) {
+                best = entry.getKey();
+                bestScore = entry.getValue();
+            }
+        }
+        return best;
+    }
+
+    private static String comment(String original, char[] rest) {
+        // rest由小写文本得到，长度与原文不同时（个别字符小写后长度变化）直接使用原文
+        if (rest.length != original.length()) {
+            return original;
+        }
+        StringBuilder sb = new StringBuilder(original.length());
+        for (int i = 0; i < rest.length; i++) {
+            char c = rest[i] == ' ' ? ' ' : original.charAt(i);
+            if (c != ' ' || (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ')) {
+                sb.append(c);
+            }
+        }
+        String comment = sb.toString().trim();
+        return comment.isEmpty() ? original : comment;
+    }
+
+    /**
+     * 解析中文数字，支持“三十五”、“一百零五”、“一百二”（即120）、“两万五”，也接受阿拉伯数字
+     */
+    static long parseNumber(String text) {
+        if (Character.isDigit(text.charAt(0))) {
+            return Long.parseLong(text);
+        }
+        long result = 0;
+        long section = 0;
+        int digit = -1;
+        long lastUnit = 1;
+        boolean zero = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int index = CHINESE_DIGITS.indexOf(c);
+            if (index >= 0) {
+                digit = CHINESE_DIGIT_VALUES[index];
+                zero |= digit == 0;
+                continue;
+            }
+            long unit = c == '十' ? 10 : c == '百' ? 100 : c == '千' ? 1000 : 10000;
+            if (unit == 10000) {
+                section += Math.max(digit, 0);
+                result += (section == 0 ? 1 : section) * unit;
+                section = 0;
+            } else {
+                section += (digit < 0 ? 1 : digit) * unit;
+            }
+            digit = -1;
+            lastUnit = unit;
+            zero = false;
+        }
+        if (digit > 0) {
+            // 省略末位单位的口语写法：一百二 = 120，两万五 = 25000
+            section += !zero && lastUnit >= 100 ? digit * (lastUnit / 10) : digit;
+        }
+        return result + section;
+    }
+
+    private static int tenthsAt(String text, int index) {
+        if (index >= text.length() || (index + 1 < text.length() && isDigitChar(text.charAt(index + 1)))) {
+            return -1;
+        }
+        char c = text.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        int chinese = CHINESE_DIGITS.indexOf(c);
+        return chinese >= 0 ? CHINESE_DIGIT_VALUES[chinese] : -1;
+    }
+
+    private static boolean hasChineseUnit(String number) {
+        for (int i = 0; i < number.length(); i++) {
+            if ("十百千万".indexOf(number.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigitChar(char c) {
+        return (c >= '0' && c <= '9') || CHINESE_DIGITS.indexOf(c) >= 0 || "十百千万".indexOf(c) >= 0;
+    }
+
+    private static LocalDate date(int year, int month, int day) {
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static void mask(char[] rest, int start, int end) {
+        for (int i = start; i < end && i < rest.length; i++) {
+            rest[i] = ' ';
+        }
+    }
+
+    private static int skipSpaces(String text, int index) {
+        while (index < text.length() && text.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWordBoundary(String text, int start, int end) {
+        return (start == 0 || !isAsciiLetter(text.charAt(start - 1))) && (end >= text.length() || !isAsciiLetter(text.charAt(end)));
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static void suffix(String currency, String... tokens) {
+        for (String token : tokens) {
+            CURRENCY_SUFFIXES.put(token, currency);
+        }
+    }
+
+    private static void prefix(String currency, String... tokens) {
+        for (String token : tokens) {
+            CURRENCY_PREFIXES.put(token, currency);
+        }
+    }
+
+    private static void category(String category, String... keywords) {
+        for (String keyword : keywords) {
+            CATEGORY_KEYWORDS.put(keyword, category);
+        }
+    }
+
+    private static final class Amount {
+        private BigDecimal value;
+        private String currency;
+        private int start;
+        private int end;
+        private int score;
+        private boolean ambiguous;
+    }
+
+    /**
+     * 字符字典树，查找从某个位置开始的最长关键词
+     * 英文关键词要求完整单词匹配，避免“bus”命中“business”
+     */
+    static final class KeywordTrie<V> {
+
+        private final Node<V> root = new Node<>();
+
+        void put(String keyword, V value) {
+            Node<V> node = root;
+            for (int i = 0; i < keyword.length(); i++) {
+                node = node.children.computeIfAbsent(keyword.charAt(i), c -> new Node<>());
+            }
+            node.value = value;
+        }
+
+        Match<V> longestMatch(String text, int start, boolean wholeWords) {
+            if (start >= text.length()) {
+                return null;
+            }
+            boolean word = wholeWords && isAsciiLetter(text.charAt(start));
+            if (word && start > 0 && isAsciiLetter(text.charAt(start - 1))) {
+                return null;
+            }
+            Node<V> node = root;
+            Match<V> match = null;
+            for (int i = start; i < text.length(); i++) {
+                node = node.children.get(text.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null && !(word && i + 1 < text.length() && isAsciiLetter(text.charAt(i + 1)))) {
+                    match = new Match<>(node.value, start, i + 1);
+                }
+            }
+            return match;
+        }
+
+        private static final class Node<V> {
+            private final Map<Character, Node<V>> children = new HashMap<>(4);
+            private V value;
+        }
+
+        static final class Match<V> {
+            final V value;
+            final int start;
+            final int end;
+
+            Match(V value, int start, int end) {
+                this.value = value;
+                this.start = start;
+                this.end = end;
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.ExportRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * 流式导出：消费记录CSV、位置GeoJSON、账户NDJSON
+ * 行直接从数据库游标读出并写入响应流，不构建实体和列表，内存占用与行数无关；
+ * 表头写出后立即flush，客户端无需等待查询结束即可开始接收
+ */
+@Service
+public class ExportService {
+
+    // 与导入的表头别名一致，导出的文件可以直接重新导入
+    private static final String EXPENSE_CSV_HEADER = "id,expenseDate,category,amount,currency,comment,createdAt";
+
+    private final ExportRepository exportRepository;
+    private final TripAccessGuard tripAccessGuard;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(ExportRepository exportRepository, TripAccessGuard tripAccessGuard, ObjectMapper objectMapper) {
+        this.exportRepository = exportRepository;
+        this.tripAccessGuard = tripAccessGuard;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 校验导出权限，必须在写出任何内容之前调用，失败时控制器仍可返回404
+     */
+    public void requireTripOwner(UUID tripId, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+    }
+
+    /**
+     * 导出行程的消费记录为CSV（UTF-8带BOM，便于Excel识别编码）
+     */
+    @Transactional(readOnly = true)
+    public void writeExpensesCsv(UUID tripId, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write('\uFEFF');
+        writer.write(EXPENSE_CSV_HEADER);
+        writer.write("\r\n");
+        writer.flush();
+        try {
+            exportRepository.streamTripExpenses(tripId, rs -> {
+                try {
+                    writer.write(rs.getObject("id").toString());
+                    writer.write(',');
+                    writer.write(dateText(rs, "expense_date"));
+                    writer.write(',');
+                    writer.write(csvText(rs.getString("category")));
+                    writer.write(',');
+                    BigDecimal amount = rs.getBigDecimal("amount");
+                    writer.write(amount != null ? amount.toPlainString() : "");
+                    writer.write(',');
+                    writer.write(csvText(rs.getString("currency")));
+                    writer.write(',');
+                    writer.write(csvText(rs.getString("comment")));
+                    writer.write(',');
+                    writer.write(timestampText(rs, "created_at"));
+                    writer.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // 客户端中途断开时，异常会终止游标读取
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * 导出行程的位置为GeoJSON FeatureCollection，按天和当天顺序排列；没有坐标的位置geometry为null
+     */
+    @Transactional(readOnly = true)
+    public void writeLocationsGeoJson(UUID tripId, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.writeStartObject();
+        json.writeStringField("type", "FeatureCollection");
+        json.writeArrayFieldStart("features");
+        json.flush();
+        try {
+            exportRepository.streamTripLocations(tripId, rs -> {
+                try {
+                    json.writeStartObject();
+                    json.writeStringField("type", "Feature");
+                    writeGeometry(json, rs);
+                    json.writeObjectFieldStart("properties");
+                    writeLocationProperties(json, rs, "type");
+                    json.writeEndObject();
+                    json.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        json.flush();
+    }
+
+    /**
+     * 导出账户的全部数据为NDJSON，每行一条记录，type字段区分user、trip、location、expense
+     * 四次查询处于同一个只读事务中，看到的是一致的快照
+     */
+    @Transactional(readOnly = true)
+    public void writeAccountNdjson(UUID userId, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+        try {
+            exportRepository.streamUser(userId, rs -> writeLine(json, rs, "user", (gen, row) -> {
+                gen.writeStringField("id", row.getObject("id").toString());
+                gen.writeStringField("email", row.getString("email"));
+                writeTimestampField(gen, row, "createdAt", "created_at");
+            }));
+            json.flush();
+            exportRepository.streamUserTrips(userId, rs -> writeLine(json, rs, "trip", (gen, row) -> {
+                gen.writeStringField("id", row.getObject("id").toString());
+                gen.writeStringField("title", row.getString("title"));
+                gen.writeStringField("destination", row.getString("destination"));
+                writeDateField(gen, row, "startDate", "start_date");
+                writeDateField(gen, row, "endDate", "end_date");
+                writeDecimalField(gen, "budgetTotal", row.getBigDecimal("budget_total"));
+                gen.writeStringField("budgetCurrency", row.getString("budget_currency"));
+                writeIntegerField(gen, row, "companionCount", "companion_count");
+                gen.writeArrayFieldStart("preferences");
+                Array preferences = row.getArray("preferences");
+                if (preferences != null) {
+                    for (Object preference : (Object[]) preferences.getArray()) {
+                        gen.writeString((String) preference);
+                    }
+                    preferences.free();
+                }
+                gen.writeEndArray();
+                writeTimestampField(gen, row, "createdAt", "created_at");
+                writeTimestampField(gen, row, "updatedAt", "updated_at");
+            }));
+            exportRepository.streamUserLocations(userId, rs -> writeLine(json, rs, "location", (gen, row) -> {
+                gen.writeStringField("tripId", row.getObject("trip_id").toString());
+                // NDJSON的type字段已用于区分记录类型，位置类型改用locationType
+                writeLocationProperties(gen, row, "locationType");
+                writeDoubleField(gen, row, "lng", "lng");
+                writeDoubleField(gen, row, "lat", "lat");
+            }));
+            exportRepository.streamUserExpenses(userId, rs -> writeLine(json, rs, "expense", (gen, row) -> {
+                gen.writeStringField("id", row.getObject("id").toString());
+                gen.writeStringField("tripId", row.getObject("trip_id").toString());
+                writeDateField(gen, row, "expenseDate", "expense_date");
+                gen.writeStringField("category", row.getString("category"));
+                writeDecimalField(gen, "amount", row.getBigDecimal("amount"));
+                gen.writeStringField("currency", row.getString("currency"));
+                gen.writeStringField("comment", row.getString("comment"));
+                writeTimestampField(gen, row, "createdAt", "created_at");
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.flush();
+    }
+
+    /**
+     * 单行记录的字段写入
+     */
+    private interface RowWriter {
+        void write(JsonGenerator json, ResultSet rs) throws IOException, SQLException;
+    }
+
+    private static void writeLine(JsonGenerator json, ResultSet rs, String type, RowWriter fields) throws SQLException {
+        try {
+            json.writeStartObject();
+            json.writeStringField("type", type);
+            fields.write(json, rs);
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeGeometry(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        double lng = rs.getDouble("lng");
+        boolean hasLng = !rs.wasNull();
+        double lat = rs.getDouble("lat");
+        boolean hasLat = !rs.wasNull();
+        if (!hasLng || !hasLat) {
+            json.writeNullField("geometry");
+            return;
+        }
+        json.writeObjectFieldStart("geometry");
+        json.writeStringField("type", "Point");
+        // GeoJSON坐标顺序为 [经度, 纬度]
+        json.writeArrayFieldStart("coordinates");
+        json.writeNumber(lng);
+        json.writeNumber(lat);
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private static void writeLocationProperties(JsonGenerator json, ResultSet rs, String typeField) throws IOException, SQLException {
+        json.writeStringField("id", rs.getObject("id").toString());
+        json.writeStringField("name", rs.getString("name"));
+        json.writeStringField("description", rs.getString("description"));
+        json.writeStringField(typeField, rs.getString("type"));
+        writeIntegerField(json, rs, "day", "day");
+        writeIntegerField(json, rs, "orderIndex", "order_index");
+    }
+
+    private static void writeIntegerField(JsonGenerator json, ResultSet rs, String field, String column) throws IOException, SQLException {
+        int value = rs.getInt(column);
+        if (rs.wasNull()) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+
+    private static void writeDoubleField(JsonGenerator json, ResultSet rs, String field, String column) throws IOException, SQLException {
+        double value = rs.getDouble(column);
+        if (rs.wasNull()) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+
+    private static void writeDecimalField(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+
+    private static void writeDateField(JsonGenerator json, ResultSet rs, String field, String column) throws IOException, SQLException {
+        LocalDate value = rs.getObject(column, LocalDate.class);
+        json.writeStringField(field, value != null ? value.toString() : null);
+    }
+
+    private static void writeTimestampField(JsonGenerator json, ResultSet rs, String field, String column) throws IOException, SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        json.writeStringField(field, value != null ? value.toInstant().toString() : null);
+    }
+
+    private static String dateText(ResultSet rs, String column) throws SQLException {
+        LocalDate value = rs.getObject(column, LocalDate.class);
+        return value != null ? value.toString() : "";
+    }
+
+    private static String timestampText(ResultSet rs, String column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value != null ? value.toInstant().toString() : "";
+    }
+
+    /**
+     * 按RFC 4180转义CSV字段
+     * 以 = + - @ 开头的文本在表格软件中会被当作公式执行，前面加单引号
+     */
+    static String csvText(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String text = value;
+        char first = text.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
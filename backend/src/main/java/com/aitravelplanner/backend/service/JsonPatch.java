@@ -0,0 +1,219 @@
+package com.aitravelplanner.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON Patch（RFC 6902）的生成和应用，只使用add、remove、replace三种操作
+ * 数组先去掉相同的前缀和后缀，中间部分按位置逐个比较，插入或删除一个元素只产生一条操作；
+ * 比较的总开销与文档大小成线性关系
+ */
+public final class JsonPatch {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    private JsonPatch() {
+    }
+
+    /**
+     * 生成把source变为target的补丁
+     */
+    public static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = NODES.arrayNode();
+        diff("", source, target, patch);
+        return patch;
+    }
+
+    /**
+     * 对文档的副本应用补丁并返回结果，补丁与文档不匹配时抛出IllegalStateException
+     */
+    public static JsonNode apply(JsonNode document, JsonNode patch) {
+        JsonNode result = document.deepCopy();
+        for (JsonNode operation : patch) {
+            String op = operation.path("op").asText();
+            List<String> path = parsePointer(operation.path("path").asText());
+            JsonNode value = operation.get("value");
+            if (path.isEmpty()) {
+                // 只允许替换整个文档
+                if (!"replace".equals(op) && !"add".equals(op)) {
+                    throw new IllegalStateException("Cannot " + op + " the document root");
+                }
+                result = value.deepCopy();
+                continue;
+            }
+            JsonNode parent = resolve(result, path.subList(0, path.size() - 1));
+            String last = path.get(path.size() - 1);
+            if (parent.isObject()) {
+                applyToObject((ObjectNode) parent, op, last, value);
+            } else if (parent.isArray()) {
+                applyToArray((ArrayNode) parent, op, last, value);
+            } else {
+                throw new IllegalStateException("Patch path does not exist: " + operation.path("path").asText());
+            }
+        }
+        return result;
+    }
+
+    private static void diff(String path, JsonNode source, JsonNode target, ArrayNode patch) {
+        if (source.equals(target)) {
+            return;
+        }
+        if (source.isObject() && target.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = source.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                String fieldPath = path + "/" + escape(field.getKey());
+                JsonNode targetValue = target.get(field.getKey());
+                if (targetValue == null) {
+                    patch.add(operation("remove", fieldPath, null));
+                } else {
+                    diff(fieldPath, field.getValue(), targetValue, patch);
+                }
+            }
+            Iterator<Map.Entry<String, JsonNode>> added = target.fields();
+            while (added.hasNext()) {
+                Map.Entry<String, JsonNode> field = added.next();
+                if (!source.has(field.getKey())) {
+                    patch.add(operation("add", path + "/" + escape(field.getKey()), field.getValue()));
+                }
+            }
+        } else if (source.isArray() && target.isArray()) {
+            diffArray(path, source, target, patch);
+        } else {
+            patch.add(operation("replace", path, target));
+        }
+    }
+
+    private static void diffArray(String path, JsonNode source, JsonNode target, ArrayNode patch) {
+        int sourceSize = source.size();
+        int targetSize = target.size();
+        int prefix = 0;
+        while (prefix < sourceSize && prefix < targetSize && source.get(prefix).equals(target.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < sourceSize - prefix && suffix < targetSize - prefix
+                && source.get(sourceSize - 1 - suffix).equals(target.get(targetSize - 1 - suffix))) {
+            suffix++;
+        }
+        int sourceMiddle = sourceSize - prefix - suffix;
+        int targetMiddle = targetSize - prefix - suffix;
+        int paired = Math.min(sourceMiddle, targetMiddle);
+        for (int i = 0; i < paired; i++) {
+            diff(path + "/" + (prefix + i), source.get(prefix + i), target.get(prefix + i), patch);
+        }
+        // 多出的元素从后往前删除，前面的下标保持不变
+        for (int i = prefix + sourceMiddle - 1; i >= prefix + paired; i--) {
+            patch.add(operation("remove", path + "/" + i, null));
+        }
+        for (int i = prefix + paired; i < prefix + targetMiddle; i++) {
+            patch.add(operation("add", path + "/" + i, target.get(i)));
+        }
+    }
+
+    private static void applyToObject(ObjectNode parent, String op, String field, JsonNode value) {
+        switch (op) {
+            case "add":
+                parent.set(field, value.deepCopy());
+                break;
+            case "replace":
+                requireField(parent, field);
+                parent.set(field, value.deepCopy());
+                break;
+            case "remove":
+                requireField(parent, field);
+                parent.remove(field);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported patch operation: " + op);
+        }
+    }
+
+    private static void applyToArray(ArrayNode parent, String op, String token, JsonNode value) {
+        if ("add".equals(op) && "-".equals(token)) {
+            parent.add(value.deepCopy());
+            return;
+        }
+        int index = parseIndex(token);
+        int limit = "add".equals(op) ? parent.size() : parent.size() - 1;
+        if (index > limit) {
+            throw new IllegalStateException("Patch index out of bounds: " + index);
+        }
+        switch (op) {
+            case "add":
+                parent.insert(index, value.deepCopy());
+                break;
+            case "replace":
+                parent.set(index, value.deepCopy());
+                break;
+            case "remove":
+                parent.remove(index);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported patch operation: " + op);
+        }
+    }
+
+    private static JsonNode resolve(JsonNode document, List<String> tokens) {
+        JsonNode node = document;
+        for (String token : tokens) {
+            node = node.isArray() ? node.get(parseIndex(token)) : node.get(token);
+            if (node == null) {
+                throw new IllegalStateException("Patch path does not exist: /" + String.join("/", tokens));
+            }
+        }
+        return node;
+    }
+
+    private static void requireField(ObjectNode parent, String field) {
+        if (!parent.has(field)) {
+            throw new IllegalStateException("Patch path does not exist: " + field);
+        }
+    }
+
+    private static int parseIndex(String token) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid array index in patch: " + token);
+        }
+    }
+
+    private static ObjectNode operation(String op, String path, JsonNode value) {
+        ObjectNode operation = NODES.objectNode();
+        operation.put("op", op);
+        operation.put("path", path);
+        if (value != null) {
+            operation.set("value", value.deepCopy());
+        }
+        return operation;
+    }
+
+    /**
+     * JSON Pointer转义：~写作~0，/写作~1
+     */
+    private static String escape(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+
+    private static List<String> parsePointer(String pointer) {
+        List<String> tokens = new ArrayList<>();
+        if (pointer.isEmpty()) {
+            return tokens;
+        }
+        if (pointer.charAt(0) != '/') {
+            throw new IllegalStateException("Invalid JSON pointer: " + pointer);
+        }
+        for (String token : pointer.substring(1).split("/", -1)) {
+            tokens.add(token.replace("~1", "/").replace("~0", "~"));
+        }
+        return tokens;
+    }
+}
@@ -1,8 +1,10 @@
 package com.aitravelplanner.backend.service;
 
 import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
 import com.aitravelplanner.backend.model.Trip;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface LLMService {
@@ -12,4 +14,13 @@ public interface LLMService {
      * @return 行程计划数据传输对象列表
      */
     List<DayPlanDTO> generatePlan(Trip trip);
+
+    /**
+     * 解析一句话记账，本地规则置信度不足时使用
+     * @param text 原始文本
+     * @param defaultCurrency 文本中没有货币时使用的货币
+     * @param today 相对日期的基准
+     * @return 解析结果，无法解析时返回null
+     */
+    ExpenseParseResponse parseExpense(String text, String defaultCurrency, LocalDate today);
 }
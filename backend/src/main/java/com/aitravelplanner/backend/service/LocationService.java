@@ -4,6 +4,7 @@ import com.aitravelplanner.backend.dto.DayPlanDTO;
 import com.aitravelplanner.backend.model.Location;
 import com.aitravelplanner.backend.model.Trip;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -18,9 +19,21 @@ public interface LocationService {
     List<Location> findByTripId(UUID tripId);
     
     /**
-     * 保存行程的位置信息
+     * 行程计划：位置按天分组、按当天顺序排序，结果按行程缓存，返回的列表不可修改
      */
-    void saveLocations(Trip trip, List<DayPlanDTO> dayPlans);
+    List<DayPlanDTO> findDayPlansByTripId(UUID tripId);
+    
+    /**
+     * 批量查询多个行程的位置，按天数和顺序索引排序
+     */
+    List<Location> findByTripIds(Collection<UUID> tripIds);
+    
+    /**
+     * 保存行程的位置信息，替换原有计划并记录为新的版本
+     * 位置和版本历史在同一事务中写入，任一步失败时抛出异常并整体回滚；
+     * 行程已被删除时不写入并返回false
+     */
+    boolean saveLocations(Trip trip, List<DayPlanDTO> dayPlans, String description);
     
     /**
      * 删除行程相关的所有位置
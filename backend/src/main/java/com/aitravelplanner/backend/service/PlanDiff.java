@@ -0,0 +1,380 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.LocationDTO;
+import com.aitravelplanner.backend.dto.PlanDiffResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * 行程计划的结构化比较
+ * 1. 名称匹配：规范化后的名称放入哈希表，同名地点优先匹配同一天的、其次距离最近的，相距超过NAME_MATCH_MAX_METERS视为不同地点
+ * 2. 邻近匹配：剩余地点按坐标放入网格哈希，只查相邻网格，相距不超过PROXIMITY_MATCH_METERS且类型一致的视为改了名的同一地点
+ * 3. 同一天内匹配上的地点按原顺序求最长递增子序列，不在其中的才算移动，前面插入或删除地点不会让后面的地点都变成移动
+ * 除同名地点重复出现的情况外，总开销为O(n log n)
+ */
+public final class PlanDiff {
+
+    // 同名地点相距超过该距离时视为不同地点（例如不同城市的同名公园）
+    static final double NAME_MATCH_MAX_METERS = 5000;
+    // 改名的地点：相距不超过该距离且类型一致时视为同一地点
+    static final double PROXIMITY_MATCH_METERS = 150;
+    // 坐标变化小于该值（约1米）不算修改
+    private static final double COORDINATE_EPSILON = 0.00001;
+    // 网格边长（度），纬度方向约222米，不小于邻近匹配距离，因此纬度方向只需查相邻一格
+    private static final double GRID_DEGREES = 0.002;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private PlanDiff() {
+    }
+
+    public static PlanDiffResponse diff(List<DayPlanDTO> from, List<DayPlanDTO> to) {
+        List<Stop> oldStops = flatten(from);
+        List<Stop> newStops = flatten(to);
+        matchByName(oldStops, newStops);
+        matchByProximity(oldStops, newStops);
+        markMoved(newStops);
+
+        PlanDiffResponse response = new PlanDiffResponse();
+        TreeMap<Integer, PlanDiffResponse.DayDiff> days = new TreeMap<>();
+        for (Stop stop : oldStops) {
+            if (stop.match == null) {
+                PlanDiffResponse.StopChange change = change(stop, null);
+                change.setBefore(stop.location);
+                day(days, stop.day).getRemoved().add(change);
+                response.setRemoved(response.getRemoved() + 1);
+            }
+        }
+        for (Stop stop : newStops) {
+            if (stop.match == null) {
+                PlanDiffResponse.StopChange change = change(null, stop);
+                change.setAfter(stop.location);
+                day(days, stop.day).getAdded().add(change);
+                response.setAdded(response.getAdded() + 1);
+                continue;
+            }
+            PlanDiffResponse.StopChange change = change(stop.match, stop);
+            change.setChangedFields(changedFields(stop.match.location, stop.location));
+            if (!change.getChangedFields().isEmpty()) {
+                change.setBefore(stop.match.location);
+                change.setAfter(stop.location);
+            }
+            if (stop.moved) {
+                day(days, stop.day).getMoved().add(change);
+                response.setMoved(response.getMoved() + 1);
+            } else if (!change.getChangedFields().isEmpty()) {
+                day(days, stop.day).getEdited().add(change);
+                response.setEdited(response.getEdited() + 1);
+            } else {
+                response.setUnchanged(response.getUnchanged() + 1);
+            }
+        }
+        response.getDays().addAll(days.values());
+        return response;
+    }
+
+    private static List<Stop> flatten(List<DayPlanDTO> plan) {
+        List<Stop> stops = new ArrayList<>();
+        if (plan == null) {
+            return stops;
+        }
+        for (DayPlanDTO dayPlan : plan) {
+            if (dayPlan.getLocations() == null) {
+                continue;
+            }
+            int index = 1;
+            for (LocationDTO location : dayPlan.getLocations()) {
+                if (location != null) {
+                    stops.add(new Stop(location, dayPlan.getDay(), index++));
+                }
+            }
+        }
+        return stops;
+    }
+
+    private static void matchByName(List<Stop> oldStops, List<Stop> newStops) {
+        Map<String, List<Stop>> byName = new HashMap<>();
+        for (Stop stop : oldStops) {
+            if (stop.key.isEmpty()) {
+                continue;
+            }
+            byName.computeIfAbsent(stop.key, key -> new ArrayList<>(1)).add(stop);
+        }
+        for (Stop stop : newStops) {
+            List<Stop> candidates = byName.get(stop.key);
+            if (candidates == null) {
+                continue;
+            }
+            Stop best = null;
+            double bestDistance = 0;
+            for (Stop candidate : candidates) {
+                if (candidate.match != null) {
+                    continue;
+                }
+                double distance = distanceMeters(candidate, stop);
+                if (distance > NAME_MATCH_MAX_METERS) {
+                    continue;
+                }
+                if (best == null || better(candidate, distance, best, bestDistance, stop)) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+            if (best != null) {
+                link(best, stop);
+            }
+        }
+    }
+
+    /**
+     * 同名候选的优先级：同一天、距离更近、当天顺序更接近
+     */
+    private static boolean better(Stop candidate, double distance, Stop best, double bestDistance, Stop target) {
+        boolean candidateSameDay = candidate.day == target.day;
+        boolean bestSameDay = best.day == target.day;
+        if (candidateSameDay != bestSameDay) {
+            return candidateSameDay;
+        }
+        if (distance != bestDistance) {
+            return distance < bestDistance;
+        }
+        return Math.abs(candidate.index - target.index) < Math.abs(best.index - target.index);
+    }
+
+    private static void matchByProximity(List<Stop> oldStops, List<Stop> newStops) {
+        Map<Long, List<Stop>> grid = new HashMap<>();
+        for (Stop stop : oldStops) {
+            if (stop.match == null && stop.hasCoordinates()) {
+                grid.computeIfAbsent(cell(latCell(stop), lngCell(stop)), key -> new ArrayList<>(1)).add(stop);
+            }
+        }
+        if (grid.isEmpty()) {
+            return;
+        }
+        for (Stop stop : newStops) {
+            if (stop.match != null || !stop.hasCoordinates()) {
+                continue;
+            }
+            // 经度方向的网格随纬度变窄，按当前纬度计算需要查找的格数
+            double cellWidthMeters = GRID_DEGREES * METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(stop.lat())), 0.01);
+            int lngSpan = (int) Math.min(Math.ceil(PROXIMITY_MATCH_METERS / cellWidthMeters), 50);
+            long latCell = latCell(stop);
+            long lngCell = lngCell(stop);
+            Stop best = null;
+            double bestDistance = PROXIMITY_MATCH_METERS;
+            for (long i = latCell - 1; i <= latCell + 1; i++) {
+                for (long j = lngCell - lngSpan; j <= lngCell + lngSpan; j++) {
+                    List<Stop> candidates = grid.get(cell(i, j));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (Stop candidate : candidates) {
+                        if (candidate.match != null || !sameType(candidate.location, stop.location)) {
+                            continue;
+                        }
+                        double distance = distanceMeters(candidate, stop);
+                        if (distance <= bestDistance) {
+                            best = candidate;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            if (best != null) {
+                link(best, stop);
+            }
+        }
+    }
+
+    /**
+     * 标记移动的地点：换了天数的；或同一天内不在原顺序最长递增子序列中的
+     */
+    private static void markMoved(List<Stop> newStops) {
+        Map<Integer, List<Stop>> sameDayByDay = new HashMap<>();
+        for (Stop stop : newStops) {
+            if (stop.match == null) {
+                continue;
+            }
+            if (stop.match.day != stop.day) {
+                stop.moved = true;
+            } else {
+                sameDayByDay.computeIfAbsent(stop.day, key -> new ArrayList<>()).add(stop);
+            }
+        }
+        for (List<Stop> stops : sameDayByDay.values()) {
+            boolean[] stable = longestIncreasingByOldIndex(stops);
+            for (int i = 0; i < stops.size(); i++) {
+                if (!stable[i]) {
+                    stops.get(i).moved = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按新顺序排列的地点中，原顺序递增的最长子序列，O(n log n)
+     */
+    private static boolean[] longestIncreasingByOldIndex(List<Stop> stops) {
+        int n = stops.size();
+        int[] tails = new int[n];      // 长度为k+1的子序列结尾元素在stops中的位置
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int value = stops.get(i).match.index;
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (stops.get(tails[mid]).match.index < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] stable = new boolean[n];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            stable[i] = true;
+        }
+        return stable;
+    }
+
+    private static List<String> changedFields(LocationDTO before, LocationDTO after) {
+        List<String> fields = new ArrayList<>();
+        if (!Objects.equals(before.getName(), after.getName())) {
+            fields.add("name");
+        }
+        if (!sameCoordinate(before.getLng(), after.getLng())) {
+            fields.add("lng");
+        }
+        if (!sameCoordinate(before.getLat(), after.getLat())) {
+            fields.add("lat");
+        }
+        if (!Objects.equals(before.getDescription(), after.getDescription())) {
+            fields.add("description");
+        }
+        if (!Objects.equals(before.getType(), after.getType())) {
+            fields.add("type");
+        }
+        return fields;
+    }
+
+    private static boolean sameCoordinate(Double a, Double b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Math.abs(a - b) < COORDINATE_EPSILON;
+    }
+
+    private static boolean sameType(LocationDTO a, LocationDTO b) {
+        return a.getType() == null || b.getType() == null || normalize(a.getType()).equals(normalize(b.getType()));
+    }
+
+    private static PlanDiffResponse.StopChange change(Stop before, Stop after) {
+        PlanDiffResponse.StopChange change = new PlanDiffResponse.StopChange();
+        change.setName(after != null ? after.location.getName() : before.location.getName());
+        if (before != null) {
+            change.setFromDay(before.day);
+            change.setFromIndex(before.index);
+        }
+        if (after != null) {
+            change.setToDay(after.day);
+            change.setToIndex(after.index);
+        }
+        return change;
+    }
+
+    private static PlanDiffResponse.DayDiff day(TreeMap<Integer, PlanDiffResponse.DayDiff> days, int day) {
+        return days.computeIfAbsent(day, key -> {
+            PlanDiffResponse.DayDiff dayDiff = new PlanDiffResponse.DayDiff();
+            dayDiff.setDay(key);
+            return dayDiff;
+        });
+    }
+
+    private static void link(Stop before, Stop after) {
+        before.match = after;
+        after.match = before;
+    }
+
+    /**
+     * 两点间的近似距离（等距圆柱投影），任一方没有坐标时返回0，即只按名称匹配
+     */
+    private static double distanceMeters(Stop a, Stop b) {
+        if (!a.hasCoordinates() || !b.hasCoordinates()) {
+            return 0;
+        }
+        double meanLat = Math.toRadians((a.lat() + b.lat()) / 2);
+        double dx = (a.lng() - b.lng()) * Math.cos(meanLat);
+        double dy = a.lat() - b.lat();
+        return Math.sqrt(dx * dx + dy * dy) * METERS_PER_DEGREE;
+    }
+
+    private static long latCell(Stop stop) {
+        return (long) Math.floor(stop.lat() / GRID_DEGREES);
+    }
+
+    private static long lngCell(Stop stop) {
+        return (long) Math.floor(stop.lng() / GRID_DEGREES);
+    }
+
+    private static long cell(long latCell, long lngCell) {
+        return latCell * 1_000_003L + lngCell;
+    }
+
+    /**
+     * 名称规范化：忽略大小写、空白和标点
+     */
+    private static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Stop {
+        private final LocationDTO location;
+        private final int day;
+        private final int index;
+        private final String key;
+        private Stop match;
+        private boolean moved;
+
+        Stop(LocationDTO location, int day, int index) {
+            this.location = location;
+            this.day = day;
+            this.index = index;
+            this.key = normalize(location.getName());
+        }
+
+        boolean hasCoordinates() {
+            return location.getLat() != null && location.getLng() != null;
+        }
+
+        double lat() {
+            return location.getLat();
+        }
+
+        double lng() {
+            return location.getLng();
+        }
+    }
+}
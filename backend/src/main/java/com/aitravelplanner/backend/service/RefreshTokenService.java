@@ -0,0 +1,131 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.AuthResponse;
+import com.aitravelplanner.backend.model.RefreshToken;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.RefreshTokenRepository;
+import com.aitravelplanner.backend.repository.UserRepository;
+import com.aitravelplanner.backend.security.AuthenticatedUser;
+import com.aitravelplanner.backend.security.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * 刷新token服务
+ * 客户端用不透明的刷新token换取新的访问token，无需再次校验密码
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final JwtUtil jwtUtil;
+    private final long refreshExpirationMs;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, UserRepository userRepository, JwtUtil jwtUtil,
+                               @Value("${jwt.refresh-expiration-ms:2592000000}") long refreshExpirationMs) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.jwtUtil = jwtUtil;
+        this.refreshExpirationMs = refreshExpirationMs;
+    }
+
+    /**
+     * 登录成功后签发访问token和新家族的刷新token
+     */
+    @Transactional
+    public AuthResponse issueTokens(AuthenticatedUser user) {
+        String refreshToken = issue(user.getId(), UUID.randomUUID(), user.getTokenVersion());
+        String accessToken = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getTokenVersion());
+        return new AuthResponse(accessToken, user.getUsername(), refreshToken);
+    }
+
+    /**
+     * 轮换刷新token：吊销旧token，在同一家族中签发新token
+     * 已吊销的token被再次使用说明可能已泄露，吊销整个家族
+     * 拒绝刷新时抛出的IllegalArgumentException不回滚事务，拒绝前做的吊销照常提交
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public AuthResponse refresh(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+
+        if (current.isRevoked()) {
+            log.warn("Reuse of revoked refresh token detected, revoking family {}", current.getFamilyId());
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+        if (current.getExpiresAt().isBefore(Instant.now())) {
+            throw new IllegalArgumentException("Refresh token expired");
+        }
+
+        // 用户来自二级缓存；吊销全部token后token版本变化，刷新token随之失效
+        User user = userRepository.findById(current.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
+        int tokenVersion = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        if (tokenVersion != current.getTokenVersion()) {
+            current.setRevoked(true);
+            throw new IllegalArgumentException("Invalid refresh token");
+        }
+
+        current.setRevoked(true);
+        String refreshToken = issue(user.getId(), current.getFamilyId(), tokenVersion);
+        String accessToken = jwtUtil.generateToken(user.getId(), user.getEmail(), tokenVersion);
+        return new AuthResponse(accessToken, user.getEmail(), refreshToken);
+    }
+
+    /**
+     * 注销：吊销该刷新token所在的家族
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeAllForUser(UUID userId) {
+        refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    private String issue(UUID userId, UUID familyId, int tokenVersion) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setId(UUID.randomUUID());
+        token.setUserId(userId);
+        token.setFamilyId(familyId);
+        token.setTokenHash(hash(rawToken));
+        token.setTokenVersion(tokenVersion);
+        token.setExpiresAt(Instant.now().plusMillis(refreshExpirationMs));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private static byte[] hash(String rawToken) {
+        if (rawToken == null || rawToken.isEmpty()) {
+            throw new IllegalArgumentException("Refresh token is required");
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
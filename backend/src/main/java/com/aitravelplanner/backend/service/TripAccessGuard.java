@@ -0,0 +1,76 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.TripRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * 行程权限校验
+ * 行程的所有者创建后不再变化，按tripId缓存ownerId，权限校验在缓存命中时只是一次内存查找；
+ * 未命中时只查询user_id一列，不加载Trip实体和User关联。行程删除时失效
+ */
+@Component
+public class TripAccessGuard {
+
+    private final TripRepository tripRepository;
+    private final Cache<UUID, UUID> owners;
+
+    @Autowired
+    public TripAccessGuard(TripRepository tripRepository,
+                           @Value("${cache.trip-owners.maximum-size:100000}") long maximumSize) {
+        this.tripRepository = tripRepository;
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * 验证用户是行程的所有者，行程不存在或不属于该用户时抛出IllegalArgumentException
+     */
+    public void requireOwner(UUID tripId, User user) {
+        UUID ownerId = ownerOf(tripId);
+        if (ownerId == null) {
+            throw new IllegalArgumentException("Trip not found with id: " + tripId);
+        }
+        if (!ownerId.equals(user.getId())) {
+            throw new IllegalArgumentException("You don't have permission to access this trip");
+        }
+    }
+
+    /**
+     * 返回行程所有者ID，行程不存在时返回null（不缓存）
+     */
+    public UUID ownerOf(UUID tripId) {
+        return owners.get(tripId, id -> tripRepository.findOwnerIdById(id).orElse(null));
+    }
+
+    /**
+     * 新建行程后直接写入缓存
+     */
+    public void register(UUID tripId, UUID ownerId) {
+        owners.put(tripId, ownerId);
+    }
+
+    /**
+     * 删除行程时失效；在事务中调用时提交后再失效一次，防止提交前的并发读取把已删除的行程重新写回
+     */
+    public void invalidate(UUID tripId) {
+        owners.invalidate(tripId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    owners.invalidate(tripId);
+                }
+            });
+        }
+    }
+}
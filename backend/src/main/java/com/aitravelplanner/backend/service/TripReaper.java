@@ -0,0 +1,93 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.repository.TripPurgeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 后台清理已删除的行程
+ * 每批取batch-size个行程，子表每条语句最多删除row-limit行并各自提交，单个事务持有的锁和产生的WAL有上限；
+ * 子表清空后删除行程行。删除后等待grace-minutes再清理，让进行中的导入等请求先结束
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "trip.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class TripReaper {
+
+    private static final String PREFERENCES_ROLE = Trip.class.getName() + ".preferences";
+
+    private final TripPurgeRepository tripPurgeRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final long graceMinutes;
+    private final int batchSize;
+    private final int rowLimit;
+
+    @Autowired
+    public TripReaper(TripPurgeRepository tripPurgeRepository,
+                      EntityManagerFactory entityManagerFactory,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${trip.purge.grace-minutes:10}") long graceMinutes,
+                      @Value("${trip.purge.batch-size:100}") int batchSize,
+                      @Value("${trip.purge.row-limit:5000}") int rowLimit) {
+        this.tripPurgeRepository = tripPurgeRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.graceMinutes = graceMinutes;
+        this.batchSize = batchSize;
+        this.rowLimit = rowLimit;
+    }
+
+    @Scheduled(fixedDelayString = "${trip.purge.interval-ms:60000}", initialDelayString = "${trip.purge.interval-ms:60000}")
+    public void purge() {
+        Instant cutoff = Instant.now().minus(graceMinutes, ChronoUnit.MINUTES);
+        int purgedTrips = 0;
+        long purgedRows = 0;
+        while (true) {
+            List<UUID> tripIds = tripPurgeRepository.findDeletedTripIds(cutoff, batchSize);
+            if (tripIds.isEmpty()) {
+                break;
+            }
+            int deleted;
+            do {
+                deleted = transactionTemplate.execute(status -> tripPurgeRepository.deleteChildRows(tripIds, rowLimit));
+                purgedRows += deleted;
+            } while (deleted > 0);
+            int trips = transactionTemplate.execute(status -> tripPurgeRepository.deleteTrips(tripIds));
+            evictCached(tripIds);
+            purgedTrips += trips;
+            if (trips == 0 || tripIds.size() < batchSize) {
+                break;
+            }
+        }
+        if (purgedTrips > 0) {
+            log.info("Purged {} deleted trips and {} child rows", purgedTrips, purgedRows);
+        }
+    }
+
+    /**
+     * 行程行由JDBC删除，二级缓存中对应的条目按ID逐条移除
+     */
+    private void evictCached(List<UUID> tripIds) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        for (UUID tripId : tripIds) {
+            cache.evictEntityData(Trip.class, tripId);
+            cache.evictCollectionData(PREFERENCES_ROLE, tripId);
+        }
+    }
+}
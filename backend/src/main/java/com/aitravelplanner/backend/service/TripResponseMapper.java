@@ -0,0 +1,128 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.LocationDTO;
+import com.aitravelplanner.backend.dto.TripResponse;
+import com.aitravelplanner.backend.model.Location;
+import com.aitravelplanner.backend.model.Trip;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Trip实体到TripResponse的转换
+ * 由TripServiceImpl和TripSnapshotService共用
+ */
+@Component
+public class TripResponseMapper {
+
+    private final LocationService locationService;
+
+    @Autowired
+    public TripResponseMapper(LocationService locationService) {
+        this.locationService = locationService;
+    }
+
+    /**
+     * 将Trip实体转换为TripResponse DTO
+     */
+    public TripResponse toResponse(Trip trip) {
+        // 行程计划按行程缓存，未命中时从数据库查询位置信息构建
+        return toResponse(trip, trip.getUser().getId(), locationService.findDayPlansByTripId(trip.getId()));
+    }
+
+    /**
+     * 批量转换行程，所有行程的位置通过一次查询加载
+     */
+    public List<TripResponse> toResponses(List<Trip> trips, UUID userId, boolean withDayPlans) {
+        if (trips.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (!withDayPlans) {
+            return trips.stream()
+                    .map(trip -> toResponse(trip, userId, null))
+                    .collect(Collectors.toList());
+        }
+
+        List<UUID> tripIds = trips.stream()
+                .map(Trip::getId)
+                .collect(Collectors.toList());
+        Map<UUID, List<Location>> locationsByTrip = locationService.findByTripIds(tripIds).stream()
+                .collect(Collectors.groupingBy(Location::getTripId));
+
+        return trips.stream()
+                .map(trip -> toResponse(trip, userId,
+                        buildDayPlansFromLocations(locationsByTrip.getOrDefault(trip.getId(), Collections.emptyList()))))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 使用已加载的行程计划构建TripResponse，dayPlans为null时表示摘要视图
+     */
+    private TripResponse toResponse(Trip trip, UUID userId, List<DayPlanDTO> dayPlans) {
+        TripResponse response = new TripResponse();
+        response.setId(trip.getId());
+        response.setUserId(userId);
+        response.setTitle(trip.getTitle());
+        response.setDestination(trip.getDestination());
+        response.setStartDate(trip.getStartDate());
+        response.setEndDate(trip.getEndDate());
+        response.setBudgetTotal(trip.getBudgetTotal());
+        response.setBudgetCurrency(trip.getBudgetCurrency());
+        response.setCompanionCount(trip.getCompanionCount());
+        response.setPreferences(trip.getPreferences());
+        response.setDayPlans(dayPlans);
+
+        response.setCreatedAt(trip.getCreatedAt());
+        response.setUpdatedAt(trip.getUpdatedAt());
+        return response;
+    }
+
+    /**
+     * 从Location列表构建DayPlanDTO列表
+     */
+    public static List<DayPlanDTO> buildDayPlansFromLocations(List<Location> locations) {
+        List<DayPlanDTO> planData = new ArrayList<>();
+
+        // 按天分组
+        Map<Integer, List<Location>> locationsByDay = locations.stream()
+                .collect(Collectors.groupingBy(Location::getDay));
+
+        // 遍历每一天
+        for (Integer day : locationsByDay.keySet().stream().sorted().collect(Collectors.toList())) {
+            DayPlanDTO dayPlanDTO = new DayPlanDTO();
+            dayPlanDTO.setDay(day);
+
+            // 按顺序索引排序位置
+            List<LocationDTO> locationDTOs = locationsByDay.get(day).stream()
+                    .sorted(Comparator.comparing(Location::getOrderIndex))
+                    .map(TripResponseMapper::toLocationDTO)
+                    .collect(Collectors.toList());
+
+            dayPlanDTO.setLocations(locationDTOs);
+            planData.add(dayPlanDTO);
+        }
+
+        return planData;
+    }
+
+    /**
+     * 将Location实体转换为LocationDTO
+     */
+    private static LocationDTO toLocationDTO(Location location) {
+        LocationDTO dto = new LocationDTO();
+        dto.setName(location.getName());
+        dto.setLng(location.getLng());
+        dto.setLat(location.getLat());
+        dto.setDescription(location.getDescription());
+        dto.setType(location.getType());
+        return dto;
+    }
+}
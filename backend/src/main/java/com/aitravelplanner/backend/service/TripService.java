@@ -1,5 +1,7 @@
 package com.aitravelplanner.backend.service;
 
+import com.aitravelplanner.backend.dto.PageResponse;
+import com.aitravelplanner.backend.dto.TripQuery;
 import com.aitravelplanner.backend.dto.TripRequest;
 import com.aitravelplanner.backend.dto.TripResponse;
 import com.aitravelplanner.backend.model.User;
@@ -18,11 +20,26 @@ public interface TripService {
      */
     List<TripResponse> getTripsByUser(User user);
     
+    /**
+     * 获取用户的所有行程摘要，不包含每日行程计划
+     */
+    List<TripResponse> getTripSummariesByUser(User user);
+    
+    /**
+     * 按游标分页获取用户的行程，支持日期范围、目的地过滤和排序
+     */
+    PageResponse<TripResponse> getTripsPage(User user, TripQuery query);
+    
     /**
      * 根据ID获取行程，并验证用户权限
      */
     TripResponse getTripById(UUID id, User user);
     
+    /**
+     * 根据ID获取预先序列化的行程快照，并验证用户权限
+     */
+    TripSnapshot getTripSnapshot(UUID id, User user);
+    
     /**
      * 更新行程
      */
@@ -32,4 +49,9 @@ public interface TripService {
      * 删除行程
      */
     void deleteTrip(UUID id, User user);
+    
+    /**
+     * 把行程计划恢复为某个历史版本，恢复结果记为新的版本
+     */
+    TripResponse restoreVersion(UUID id, int version, User user);
 }
@@ -0,0 +1,63 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.Trip;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * 预先序列化的TripResponse快照
+ * 版本由行程的计划版本和更新时间组成，行程或计划变化后版本随之变化
+ */
+@Getter
+public final class TripSnapshot {
+
+    private final UUID tripId;
+    private final UUID ownerId;
+    private final long planVersion;
+    private final long updatedAtMillis;
+    private final byte[] json;
+    private final byte[] gzip;   // 未启用或响应体过小时为null
+
+    public TripSnapshot(UUID tripId, UUID ownerId, long planVersion, long updatedAtMillis, byte[] json, byte[] gzip) {
+        this.tripId = tripId;
+        this.ownerId = ownerId;
+        this.planVersion = planVersion;
+        this.updatedAtMillis = updatedAtMillis;
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    public String getVersion() {
+        return planVersion + "-" + updatedAtMillis;
+    }
+
+    /**
+     * 快照是否与行程当前的版本一致
+     */
+    public boolean matches(Trip trip) {
+        return planVersion == planVersionOf(trip) && updatedAtMillis == updatedAtMillisOf(trip);
+    }
+
+    /**
+     * 是否不比另一个快照旧，用于避免并发重建时旧快照覆盖新快照
+     */
+    public boolean isNotOlderThan(TripSnapshot other) {
+        if (planVersion != other.planVersion) {
+            return planVersion > other.planVersion;
+        }
+        return updatedAtMillis >= other.updatedAtMillis;
+    }
+
+    public int sizeInBytes() {
+        return json.length + (gzip != null ? gzip.length : 0);
+    }
+
+    static long planVersionOf(Trip trip) {
+        return trip.getPlanVersion() != null ? trip.getPlanVersion() : 0;
+    }
+
+    static long updatedAtMillisOf(Trip trip) {
+        return trip.getUpdatedAt() != null ? trip.getUpdatedAt().toEpochMilli() : 0;
+    }
+}
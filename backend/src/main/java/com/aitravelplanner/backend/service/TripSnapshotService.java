@@ -0,0 +1,144 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.TripResponse;
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.repository.TripRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 行程响应快照存储
+ * 按行程缓存完整序列化（可选gzip压缩）后的TripResponse字节，
+ * GET /api/trips/{id} 直接输出这些字节，无需重新查询位置、分组排序和JSON序列化。
+ * 行程或计划写入提交后重建快照，读取时再按版本校验一次。
+ */
+@Service
+@Slf4j
+public class TripSnapshotService {
+
+    private final TripRepository tripRepository;
+    private final TripResponseMapper tripResponseMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<UUID, TripSnapshot> snapshots;
+    private final boolean gzipEnabled;
+    private final int gzipMinBytes;
+
+    @Autowired
+    public TripSnapshotService(TripRepository tripRepository,
+                               TripResponseMapper tripResponseMapper,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${snapshot.max-bytes:67108864}") long maxBytes,
+                               @Value("${snapshot.gzip.enabled:true}") boolean gzipEnabled,
+                               @Value("${snapshot.gzip.min-bytes:1024}") int gzipMinBytes) {
+        this.tripRepository = tripRepository;
+        this.tripResponseMapper = tripResponseMapper;
+        this.objectMapper = objectMapper;
+        this.gzipEnabled = gzipEnabled;
+        this.gzipMinBytes = gzipMinBytes;
+
+        // 提交后的回调中需要新事务才能加载懒加载的偏好集合
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionTemplate.setReadOnly(true);
+
+        // 按字节数限制总容量
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((UUID tripId, TripSnapshot snapshot) -> snapshot.sizeInBytes())
+                .build();
+    }
+
+    /**
+     * 返回与行程当前版本一致的快照，不存在或版本过期时重新构建
+     */
+    public TripSnapshot getCurrent(Trip trip) {
+        TripSnapshot snapshot = snapshots.getIfPresent(trip.getId());
+        if (snapshot != null && snapshot.matches(trip)) {
+            return snapshot;
+        }
+        return build(trip);
+    }
+
+    /**
+     * 当前事务提交后重建快照；没有事务时立即重建
+     */
+    public void rebuildAfterCommit(UUID tripId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild(tripId);
+                }
+            });
+        } else {
+            rebuild(tripId);
+        }
+    }
+
+    /**
+     * 从数据库重新加载行程并重建快照，失败时只移除旧快照，下次读取时再构建
+     */
+    public void rebuild(UUID tripId) {
+        try {
+            transactionTemplate.execute(status -> {
+                tripRepository.findById(tripId).ifPresent(this::build);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("重建行程快照失败，Trip ID: {}", tripId, e);
+            snapshots.invalidate(tripId);
+        }
+    }
+
+    public void invalidate(UUID tripId) {
+        snapshots.invalidate(tripId);
+    }
+
+    private TripSnapshot build(Trip trip) {
+        TripResponse response = tripResponseMapper.toResponse(trip);
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize trip " + trip.getId(), e);
+        }
+        byte[] gzip = gzipEnabled && json.length >= gzipMinBytes ? gzip(json) : null;
+
+        TripSnapshot snapshot = new TripSnapshot(trip.getId(), trip.getUser().getId(),
+                TripSnapshot.planVersionOf(trip), TripSnapshot.updatedAtMillisOf(trip), json, gzip);
+
+        // 并发重建时保留较新的版本
+        snapshots.asMap().merge(trip.getId(), snapshot,
+                (existing, fresh) -> fresh.isNotOlderThan(existing) ? fresh : existing);
+        return snapshot;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,158 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.TripSpendTotal;
+import com.aitravelplanner.backend.repository.ExpenseRepository;
+import com.aitravelplanner.backend.repository.TripSpendTotalRepository;
+import com.aitravelplanner.backend.repository.TripStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * 已花费总额对账
+ * 定期按tripId分页遍历行程，将trip_spend_totals中维护的按货币总额与消费记录的SQL汇总比较
+ * （例如直接修改数据库、早期版本写入的数据）。有偏差的行程在锁定统计行后重新汇总并替换，
+ * 不会覆盖并发的变化；还没有统计行的行程（早于统计表创建）插入统计行并按消费记录汇总初始化
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "budget.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class TripStatsReconciler {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    private final TripStatsRepository tripStatsRepository;
+    private final TripSpendTotalRepository tripSpendTotalRepository;
+    private final ExpenseRepository expenseRepository;
+    private final TripStatsService tripStatsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+
+    @Autowired
+    public TripStatsReconciler(TripStatsRepository tripStatsRepository,
+                               TripSpendTotalRepository tripSpendTotalRepository,
+                               ExpenseRepository expenseRepository,
+                               TripStatsService tripStatsService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${budget.reconcile.page-size:500}") int pageSize) {
+        this.tripStatsRepository = tripStatsRepository;
+        this.tripSpendTotalRepository = tripSpendTotalRepository;
+        this.expenseRepository = expenseRepository;
+        this.tripStatsService = tripStatsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * 启动后在后台对账一次，补齐升级前已存在的行程
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${budget.reconcile.cron:0 30 3 * * *}")
+    public void reconcile() {
+        UUID after = MIN_UUID;
+        int checked = 0;
+        int seeded = 0;
+        int repaired = 0;
+        while (true) {
+            List<Object[]> rows = tripStatsRepository.findTripsAfter(after, PageRequest.of(0, pageSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<UUID> tripIds = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                UUID tripId = (UUID) row[0];
+                if (row[1] == null) {
+                    transactionTemplate.executeWithoutResult(status -> seed(tripId));
+                    seeded++;
+                } else {
+                    tripIds.add(tripId);
+                }
+            }
+            if (!tripIds.isEmpty()) {
+                for (UUID tripId : findDrifted(tripIds)) {
+                    transactionTemplate.executeWithoutResult(status -> repair(tripId));
+                    repaired++;
+                }
+            }
+            checked += rows.size();
+            if (rows.size() < pageSize) {
+                break;
+            }
+            after = (UUID) rows.get(rows.size() - 1)[0];
+        }
+        log.info("Spent total reconciliation finished: checked={}, seeded={}, repaired={}", checked, seeded, repaired);
+    }
+
+    /**
+     * 一页行程中维护的总额与实际汇总不一致的行程
+     */
+    private List<UUID> findDrifted(List<UUID> tripIds) {
+        Map<UUID, Map<String, BigDecimal>> maintained = new HashMap<>();
+        for (TripSpendTotal total : tripSpendTotalRepository.findByTripIdIn(tripIds)) {
+            if (total.getAmount().signum() != 0) {
+                maintained.computeIfAbsent(total.getTripId(), id -> new TreeMap<>())
+                        .put(total.getCurrency(), total.getAmount().stripTrailingZeros());
+            }
+        }
+        Map<UUID, Map<String, BigDecimal>> actual = new HashMap<>();
+        for (Object[] row : expenseRepository.sumAmountByTripIdsAndCurrency(tripIds)) {
+            actual.computeIfAbsent((UUID) row[0], id -> new TreeMap<>())
+                    .merge(ExchangeRateTable.currencyKey((String) row[1]), (BigDecimal) row[2], BigDecimal::add);
+        }
+        List<UUID> drifted = new ArrayList<>();
+        for (UUID tripId : tripIds) {
+            Map<String, BigDecimal> expected = new TreeMap<>();
+            for (Map.Entry<String, BigDecimal> entry : actual.getOrDefault(tripId, new TreeMap<>()).entrySet()) {
+                if (entry.getValue().signum() != 0) {
+                    expected.put(entry.getKey(), entry.getValue().stripTrailingZeros());
+                }
+            }
+            if (!expected.equals(maintained.getOrDefault(tripId, new TreeMap<>()))) {
+                drifted.add(tripId);
+            }
+        }
+        return drifted;
+    }
+
+    /**
+     * 为没有统计行的行程插入统计行并按消费记录汇总初始化
+     * 并发的首次消费记录写入已插入时由其负责初始化，这里不再处理
+     */
+    private void seed(UUID tripId) {
+        if (tripStatsRepository.insertIfAbsent(tripId) == 0) {
+            return;
+        }
+        tripStatsService.replaceTotals(tripId, tripStatsService.actualTotals(tripId));
+    }
+
+    private void repair(UUID tripId) {
+        if (!tripStatsRepository.findByIdForUpdate(tripId).isPresent()) {
+            return;
+        }
+        Map<String, BigDecimal> actual = tripStatsService.actualTotals(tripId);
+        log.warn("Trip {} spent totals drifted, resetting to {}", tripId, actual);
+        tripStatsService.replaceTotals(tripId, actual);
+    }
+}
@@ -0,0 +1,131 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.model.TripSpendTotal;
+import com.aitravelplanner.backend.model.TripStats;
+import com.aitravelplanner.backend.repository.ExpenseRepository;
+import com.aitravelplanner.backend.repository.TripSpendTotalRepository;
+import com.aitravelplanner.backend.repository.TripStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * 维护trip_stats中的消费记录版本和trip_spend_totals中按货币的已花费总额
+ * 每次消费记录变化时在同一事务中递增版本、累加各货币的金额差值，
+ * 预算查询直接读取总额，与消费记录数量无关；偏差由TripStatsReconciler定期修正
+ */
+@Service
+public class TripStatsService {
+
+    private final TripStatsRepository tripStatsRepository;
+    private final TripSpendTotalRepository tripSpendTotalRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public TripStatsService(TripStatsRepository tripStatsRepository, TripSpendTotalRepository tripSpendTotalRepository,
+                            ExpenseRepository expenseRepository, ApplicationEventPublisher eventPublisher) {
+        this.tripStatsRepository = tripStatsRepository;
+        this.tripSpendTotalRepository = tripSpendTotalRepository;
+        this.expenseRepository = expenseRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 新建行程时创建统计行
+     */
+    @Transactional
+    public void initialize(UUID tripId) {
+        TripStats stats = new TripStats();
+        stats.setTripId(tripId);
+        tripStatsRepository.save(stats);
+    }
+
+    /**
+     * 记录一次单一货币的消费记录变化
+     */
+    @Transactional
+    public void recordExpenseChange(UUID tripId, String currency, BigDecimal spentDelta) {
+        recordExpenseChanges(tripId, Collections.singletonMap(currency, spentDelta));
+    }
+
+    /**
+     * 记录一次消费记录变化：递增版本并累加各货币的金额差值，事务回滚时一并回滚
+     * 版本递增锁住统计行，之后的总额更新不会与同一行程的其他变化交错；
+     * 统计行不存在（早于统计表创建的行程）时先插入再递增：由本事务插入时按当前消费记录汇总初始化，
+     * 其中已包含本次变化；并发的首次写入或对账已插入时，等待其提交后照常累加差值。
+     * 同时发布ExpenseChangedEvent，供提交后推送预算变化
+     */
+    @Transactional
+    public void recordExpenseChanges(UUID tripId, Map<String, BigDecimal> spentDeltas) {
+        eventPublisher.publishEvent(new ExpenseChangedEvent(tripId));
+        if (tripStatsRepository.incrementExpenseVersion(tripId) == 0) {
+            boolean inserted = tripStatsRepository.insertIfAbsent(tripId) == 1;
+            tripStatsRepository.incrementExpenseVersion(tripId);
+            if (inserted) {
+                replaceTotals(tripId, actualTotals(tripId));
+                return;
+            }
+        }
+        for (Map.Entry<String, BigDecimal> entry : spentDeltas.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().signum() == 0) {
+                continue;
+            }
+            String currency = ExchangeRateTable.currencyKey(entry.getKey());
+            if (tripSpendTotalRepository.addAmount(tripId, currency, entry.getValue()) == 0) {
+                TripSpendTotal total = new TripSpendTotal();
+                total.setTripId(tripId);
+                total.setCurrency(currency);
+                total.setAmount(entry.getValue());
+                tripSpendTotalRepository.save(total);
+            }
+        }
+    }
+
+    /**
+     * 按货币的已花费总额（原币）；统计行不存在时用一次SQL汇总计算
+     */
+    @Transactional(readOnly = true)
+    public Map<String, BigDecimal> spentTotals(UUID tripId) {
+        if (!tripStatsRepository.existsById(tripId)) {
+            return actualTotals(tripId);
+        }
+        Map<String, BigDecimal> totals = new TreeMap<>();
+        for (TripSpendTotal total : tripSpendTotalRepository.findByTripId(tripId)) {
+            totals.put(total.getCurrency(), total.getAmount());
+        }
+        return totals;
+    }
+
+    /**
+     * 由消费记录汇总得到的按货币总额
+     */
+    Map<String, BigDecimal> actualTotals(UUID tripId) {
+        Map<String, BigDecimal> totals = new TreeMap<>();
+        for (Object[] row : expenseRepository.sumAmountByCurrency(tripId)) {
+            totals.merge(ExchangeRateTable.currencyKey((String) row[0]), (BigDecimal) row[1], BigDecimal::add);
+        }
+        return totals;
+    }
+
+    /**
+     * 以给定的总额替换行程的全部按货币总额，调用方须已锁定统计行
+     */
+    void replaceTotals(UUID tripId, Map<String, BigDecimal> totals) {
+        tripSpendTotalRepository.deleteByTripId(tripId);
+        for (Map.Entry<String, BigDecimal> entry : totals.entrySet()) {
+            TripSpendTotal total = new TripSpendTotal();
+            total.setTripId(tripId);
+            total.setCurrency(entry.getKey());
+            total.setAmount(entry.getValue());
+            tripSpendTotalRepository.save(total);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.PlanDiffResponse;
+import com.aitravelplanner.backend.dto.TripVersionResponse;
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.model.TripVersion;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.TripVersionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 行程计划的版本历史
+ * 每次保存新计划时在同一事务中记录一个版本，被替换的计划因此总能找回。
+ * 多数版本只保存相对上一版本的JSON Patch，存储量与修改量成正比；
+ * 距上一个关键帧已有keyframe-interval个版本，或累计补丁比完整计划还大时，改为保存完整计划作为关键帧，
+ * 读取任一版本最多应用keyframe-interval-1个补丁。每个行程至少保留最近max-versions个版本
+ * 版本写入后不再变化，两个版本之间的差异按版本对缓存，截断历史时清除该行程的缓存
+ */
+@Service
+public class TripVersionService {
+
+    public static final String DESCRIPTION_GENERATED = "生成行程计划";
+    // 功能上线前生成、没有版本记录的计划
+    public static final String DESCRIPTION_UNRECORDED = "此前的计划";
+
+    private final TripVersionRepository tripVersionRepository;
+    private final TripAccessGuard tripAccessGuard;
+    private final ObjectMapper objectMapper;
+    private final int keyframeInterval;
+    private final int maxVersions;
+    // 行程ID:原版本:新版本 -> 差异
+    private final Cache<String, PlanDiffResponse> diffs;
+
+    @Autowired
+    public TripVersionService(TripVersionRepository tripVersionRepository, TripAccessGuard tripAccessGuard,
+                              ObjectMapper objectMapper,
+                              @Value("${trip.versions.keyframe-interval:32}") int keyframeInterval,
+                              @Value("${trip.versions.max-versions:50}") int maxVersions,
+                              @Value("${cache.plan-diffs.maximum-size:1000}") long diffCacheSize) {
+        this.tripVersionRepository = tripVersionRepository;
+        this.tripAccessGuard = tripAccessGuard;
+        this.objectMapper = objectMapper;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.maxVersions = maxVersions;
+        this.diffs = Caffeine.newBuilder()
+                .maximumSize(diffCacheSize)
+                .build();
+    }
+
+    public static String restoredDescription(int version) {
+        return "恢复版本 " + version;
+    }
+
+    /**
+     * 记录新计划，由保存计划的事务在锁定行程行后调用，同一行程的版本号因此不会冲突
+     * previousPlan为被替换的计划；它与最新版本不一致时（例如没有版本记录的旧计划）先把它记为一个版本
+     */
+    @Transactional
+    public void recordPlan(Trip lockedTrip, List<DayPlanDTO> previousPlan, List<DayPlanDTO> plan, String description) {
+        UUID tripId = lockedTrip.getId();
+        PlanChain chain = loadLatestChain(tripId);
+        JsonNode previous = objectMapper.valueToTree(previousPlan);
+        if (chain == null ? previous.size() > 0 : !chain.plan.equals(previous)) {
+            chain = append(lockedTrip, chain, previous, DESCRIPTION_UNRECORDED);
+        }
+        chain = append(lockedTrip, chain, objectMapper.valueToTree(plan), description);
+        prune(tripId, chain.version);
+    }
+
+    /**
+     * 行程的版本列表，最新的在前
+     */
+    @Transactional(readOnly = true)
+    public List<TripVersionResponse> listVersions(UUID tripId, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+        return tripVersionRepository.findSummariesByTripId(tripId);
+    }
+
+    /**
+     * 读取某个版本的完整计划，并验证用户权限
+     */
+    @Transactional(readOnly = true)
+    public List<DayPlanDTO> getPlan(UUID tripId, int version, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+        return loadPlan(tripId, version);
+    }
+
+    /**
+     * 比较两个版本的计划，并验证用户权限；结果按版本对缓存
+     */
+    @Transactional(readOnly = true)
+    public PlanDiffResponse diff(UUID tripId, int fromVersion, int toVersion, User user) {
+        tripAccessGuard.requireOwner(tripId, user);
+        return diffs.get(tripId + ":" + fromVersion + ":" + toVersion, key -> {
+            PlanDiffResponse diff = PlanDiff.diff(loadPlan(tripId, fromVersion), loadPlan(tripId, toVersion));
+            diff.setFromVersion(fromVersion);
+            diff.setToVersion(toVersion);
+            return diff;
+        });
+    }
+
+    /**
+     * 从不晚于该版本的最近关键帧开始依次应用补丁，还原该版本的完整计划；调用方负责权限校验
+     */
+    @Transactional(readOnly = true)
+    public List<DayPlanDTO> loadPlan(UUID tripId, int version) {
+        TripVersion keyframe = tripVersionRepository
+                .findFirstByTripIdAndKeyframeTrueAndVersionLessThanEqualOrderByVersionDesc(tripId, version);
+        if (keyframe == null) {
+            throw new IllegalArgumentException("Trip version not found: " + version);
+        }
+        List<TripVersion> chain = tripVersionRepository.findByTripIdAndVersionBetweenOrderByVersionAsc(
+                tripId, keyframe.getVersion(), version);
+        if (chain.get(chain.size() - 1).getVersion() != version) {
+            throw new IllegalArgumentException("Trip version not found: " + version);
+        }
+        JsonNode plan = replay(chain);
+        return objectMapper.convertValue(plan,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, DayPlanDTO.class));
+    }
+
+    /**
+     * 最新的关键帧及其后的所有版本，还原出最新版本的计划；行程还没有版本时返回null
+     */
+    private PlanChain loadLatestChain(UUID tripId) {
+        TripVersion keyframe = tripVersionRepository.findFirstByTripIdAndKeyframeTrueOrderByVersionDesc(tripId);
+        if (keyframe == null) {
+            return null;
+        }
+        List<TripVersion> versions = tripVersionRepository
+                .findByTripIdAndVersionGreaterThanEqualOrderByVersionAsc(tripId, keyframe.getVersion());
+        PlanChain chain = new PlanChain();
+        chain.plan = replay(versions);
+        chain.version = versions.get(versions.size() - 1).getVersion();
+        chain.deltas = versions.size() - 1;
+        for (int i = 1; i < versions.size(); i++) {
+            chain.deltaChars += versions.get(i).getPlanData().length();
+        }
+        return chain;
+    }
+
+    private PlanChain append(Trip trip, PlanChain chain, JsonNode plan, String description) {
+        String full = write(plan);
+        String delta = chain != null ? write(JsonPatch.diff(chain.plan, plan)) : null;
+        // 补丁链太长，或累计补丁已比完整计划大时，保存关键帧
+        boolean keyframe = chain == null
+                || chain.deltas + 1 >= keyframeInterval
+                || chain.deltaChars + delta.length() >= full.length();
+
+        TripVersion version = new TripVersion();
+        version.setTrip(trip);
+        version.setVersion(chain != null ? chain.version + 1 : 1);
+        version.setKeyframe(keyframe);
+        version.setPlanData(keyframe ? full : delta);
+        version.setDescription(description);
+        version.setCreatedAt(Instant.now());
+        tripVersionRepository.save(version);
+
+        PlanChain next = new PlanChain();
+        next.plan = plan;
+        next.version = version.getVersion();
+        if (!keyframe) {
+            next.deltas = chain.deltas + 1;
+            next.deltaChars = chain.deltaChars + delta.length();
+        }
+        return next;
+    }
+
+    /**
+     * 只在关键帧处截断历史，保留的最早版本不依赖已删除的版本，因此实际保留的版本数可能略多于max-versions
+     */
+    private void prune(UUID tripId, int latestVersion) {
+        if (maxVersions <= 0 || latestVersion <= maxVersions) {
+            return;
+        }
+        TripVersion keyframe = tripVersionRepository.findFirstByTripIdAndKeyframeTrueAndVersionLessThanEqualOrderByVersionDesc(
+                tripId, latestVersion - maxVersions + 1);
+        if (keyframe != null && tripVersionRepository.deleteOlderThan(tripId, keyframe.getVersion()) > 0) {
+            evictDiffs(tripId);
+        }
+    }
+
+    /**
+     * 删除版本后清除该行程的差异缓存，已删除的版本不再能比较
+     * 在事务提交后执行，避免提交前的并发请求把已删除版本的差异重新写回缓存
+     */
+    private void evictDiffs(UUID tripId) {
+        String prefix = tripId + ":";
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            diffs.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                diffs.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+            }
+        });
+    }
+
+    private JsonNode replay(List<TripVersion> chain) {
+        JsonNode plan = read(chain.get(0).getPlanData());
+        for (int i = 1; i < chain.size(); i++) {
+            plan = JsonPatch.apply(plan, read(chain.get(i).getPlanData()));
+        }
+        return plan;
+    }
+
+    private JsonNode read(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt trip version data", e);
+        }
+    }
+
+    private String write(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsString(node);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize trip plan", e);
+        }
+    }
+
+    /**
+     * 最新版本的计划，以及自最近关键帧以来的补丁数和补丁总长度
+     */
+    private static final class PlanChain {
+        private JsonNode plan;
+        private int version;
+        private int deltas;
+        private long deltaChars;
+    }
+}
@@ -5,9 +5,11 @@ import com.aitravelplanner.backend.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.UUID;
 
 @Service
 public class UserService {
@@ -22,19 +24,30 @@ public class UserService {
     public User registerUser(String email, String password) {
         // 检查邮箱是否已存在
         if (userRepository.existsByEmail(email)) {
-            throw new RuntimeException("Email already exists");
+            throw new IllegalArgumentException("Email already exists");
         }
 
         // 创建新用户
         User user = new User();
         user.setEmail(email);
         user.setPasswordHash(passwordEncoder.encode(password));
+        user.setTokenVersion(0);
         user.setCreatedAt(Instant.now());
         user.setUpdatedAt(Instant.now());
 
         return userRepository.save(user);
     }
 
+    // 递增token版本，使该用户之前签发的所有token失效
+    @Transactional
+    public void revokeTokens(UUID userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        int tokenVersion = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        user.setTokenVersion(tokenVersion + 1);
+        user.setUpdatedAt(Instant.now());
+    }
+
     // 根据邮箱查找用户
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
@@ -1,61 +1,222 @@
 package com.aitravelplanner.backend.service.impl;
 
+import com.aitravelplanner.backend.dto.BudgetBreakdownResponse;
 import com.aitravelplanner.backend.dto.BudgetResponse;
-import com.aitravelplanner.backend.model.Expense;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.User;
 import com.aitravelplanner.backend.repository.ExpenseRepository;
 import com.aitravelplanner.backend.repository.TripRepository;
 import com.aitravelplanner.backend.service.BudgetService;
+import com.aitravelplanner.backend.service.ExchangeRateMatrix;
+import com.aitravelplanner.backend.service.ExchangeRateTable;
+import com.aitravelplanner.backend.service.TripAccessGuard;
+import com.aitravelplanner.backend.service.TripStatsService;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 
 @Service
 public class BudgetServiceImpl implements BudgetService {
 
+    // 没有类别的消费记录归入“其他”，与前端的类别一致
+    private static final String DEFAULT_CATEGORY = "其他";
+
     private final TripRepository tripRepository;
     private final ExpenseRepository expenseRepository;
+    private final TripStatsService tripStatsService;
+    private final TripAccessGuard tripAccessGuard;
+    private final ExchangeRateTable exchangeRateTable;
 
-    public BudgetServiceImpl(TripRepository tripRepository, ExpenseRepository expenseRepository) {
+    public BudgetServiceImpl(TripRepository tripRepository, ExpenseRepository expenseRepository,
+                             TripStatsService tripStatsService, TripAccessGuard tripAccessGuard,
+                             ExchangeRateTable exchangeRateTable) {
         this.tripRepository = tripRepository;
         this.expenseRepository = expenseRepository;
+        this.tripStatsService = tripStatsService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.exchangeRateTable = exchangeRateTable;
     }
 
     @Override
     public BudgetResponse getBudgetStatus(UUID tripId, User user) {
-        // 获取行程并验证权限
+        // 验证用户权限，行程本身来自二级缓存
+        tripAccessGuard.requireOwner(tripId, user);
         Trip trip = tripRepository.findById(tripId)
                 .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
         
-        // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to access this trip's budget");
+        // 已花费金额读取trip_stats中维护的按货币总额，不加载消费记录；折算和求和都以最小单位的long进行
+        BudgetCurrency budget = new BudgetCurrency(exchangeRateTable.current(), trip.getBudgetCurrency());
+        long spent = 0;
+        for (Map.Entry<String, BigDecimal> entry : tripStatsService.spentTotals(tripId).entrySet()) {
+            if (budget.accepts(entry.getKey())) {
+                spent = Math.addExact(spent, budget.toMinor(entry.getValue(), entry.getKey()));
+            }
         }
         
-        // 获取行程的所有消费记录
-        List<Expense> expenses = expenseRepository.findByTripId(tripId);
-        
-        // 计算已花费金额
-        BigDecimal spent = expenses.stream()
-                .map(Expense::getAmount)
-                .filter(amount -> amount != null)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
         // 计算剩余预算和是否超支
-        BigDecimal totalBudget = trip.getBudgetTotal() != null ? trip.getBudgetTotal() : BigDecimal.ZERO;
-        BigDecimal remaining = totalBudget.subtract(spent);
-        boolean overspend = remaining.compareTo(BigDecimal.ZERO) < 0;
+        long totalBudget = budget.toMinor(trip.getBudgetTotal() != null ? trip.getBudgetTotal() : BigDecimal.ZERO, budget.code);
+        long remaining = totalBudget - spent;
         
         // 创建并返回响应
         BudgetResponse response = new BudgetResponse();
-        response.setTotalBudget(totalBudget);
-        response.setSpent(spent);
-        response.setRemaining(remaining);
-        response.setOverspend(overspend);
+        response.setCurrency(budget.code);
+        response.setTotalBudget(budget.fromMinor(totalBudget));
+        response.setSpent(budget.fromMinor(spent));
+        response.setRemaining(budget.fromMinor(remaining));
+        response.setOverspend(remaining < 0);
+        response.getUnconvertedCurrencies().addAll(budget.unconverted);
         
         return response;
     }
-}
\ No newline at end of file
+
+    @Override
+    public BudgetBreakdownResponse getBudgetBreakdown(UUID tripId, User user) {
+        // 验证用户权限，行程本身来自二级缓存
+        tripAccessGuard.requireOwner(tripId, user);
+        Trip trip = tripRepository.findById(tripId)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
+        BudgetCurrency budget = new BudgetCurrency(exchangeRateTable.current(), trip.getBudgetCurrency());
+
+        // 一次分组查询得到 (类别, 日期, 货币) 的汇总，折算后在内存中合并为按类别和按日期两个维度
+        // 累加使用 long[]{金额（预算货币最小单位）, 笔数}
+        Map<String, long[]> byCategory = new HashMap<>();
+        TreeMap<LocalDate, long[]> byDate = new TreeMap<>();
+        long spent = 0;
+        long undatedSpent = 0;
+        for (Object[] row : expenseRepository.sumByCategoryDateAndCurrency(tripId)) {
+            String currency = ExchangeRateTable.currencyKey((String) row[2]);
+            if (!budget.accepts(currency)) {
+                continue;
+            }
+            String category = row[0] != null && !((String) row[0]).trim().isEmpty() ? (String) row[0] : DEFAULT_CATEGORY;
+            LocalDate date = (LocalDate) row[1];
+            long amount = budget.toMinor((BigDecimal) row[3], currency);
+            long count = ((Number) row[4]).longValue();
+            spent = Math.addExact(spent, amount);
+            accumulate(byCategory.computeIfAbsent(category, key -> new long[2]), amount, count);
+            if (date == null) {
+                undatedSpent = Math.addExact(undatedSpent, amount);
+            } else {
+                accumulate(byDate.computeIfAbsent(date, key -> new long[2]), amount, count);
+            }
+        }
+
+        long totalBudget = budget.toMinor(trip.getBudgetTotal() != null ? trip.getBudgetTotal() : BigDecimal.ZERO, budget.code);
+        LocalDate start = trip.getStartDate();
+        LocalDate end = trip.getEndDate();
+        long tripDays = ChronoUnit.DAYS.between(start, end) + 1;
+
+        BudgetBreakdownResponse response = new BudgetBreakdownResponse();
+        response.setCurrency(budget.code);
+        response.setTotalBudget(budget.fromMinor(totalBudget));
+        response.setSpent(budget.fromMinor(spent));
+        response.setDailyBudget(budget.fromMinor(divideRounded(totalBudget, tripDays)));
+        response.setUndatedSpent(budget.fromMinor(undatedSpent));
+        response.getUnconvertedCurrencies().addAll(budget.unconverted);
+
+        List<Map.Entry<String, long[]>> categories = new ArrayList<>(byCategory.entrySet());
+        categories.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (Map.Entry<String, long[]> entry : categories) {
+            response.getByCategory().add(new BudgetBreakdownResponse.CategoryTotal(
+                    entry.getKey(), budget.fromMinor(entry.getValue()[0]), entry.getValue()[1]));
+        }
+        for (Map.Entry<LocalDate, long[]> entry : byDate.entrySet()) {
+            response.getByDate().add(new BudgetBreakdownResponse.DayTotal(
+                    entry.getKey(), budget.fromMinor(entry.getValue()[0]), entry.getValue()[1]));
+        }
+
+        // 燃尽：未填日期和行程开始前的消费计入第一天的累计花费，行程结束后的消费只体现在byDate和spent中
+        long cumulative = undatedSpent;
+        for (long[] day : byDate.headMap(start).values()) {
+            cumulative += day[0];
+        }
+        for (int i = 0; i < tripDays; i++) {
+            LocalDate date = start.plusDays(i);
+            long[] day = byDate.get(date);
+            long daySpent = day != null ? day[0] : 0;
+            cumulative += daySpent;
+            // 按比例计算累计额度，最后一天恰好等于总预算
+            long cumulativeBudget = divideRounded(Math.multiplyExact(totalBudget, (long) (i + 1)), tripDays);
+            response.getBurnDown().add(new BudgetBreakdownResponse.BurnDownPoint(date, budget.fromMinor(daySpent),
+                    budget.fromMinor(cumulative), budget.fromMinor(cumulativeBudget), budget.fromMinor(totalBudget - cumulative)));
+        }
+
+        // 预计总花费：行程进行中按已过天数的日均花费外推；未开始或已结束时即为已花费金额
+        long projected = spent;
+        LocalDate today = LocalDate.now();
+        if (!today.isBefore(start) && !today.isAfter(end)) {
+            long elapsedDays = ChronoUnit.DAYS.between(start, today) + 1;
+            projected = divideRounded(Math.multiplyExact(spent, tripDays), elapsedDays);
+        }
+        response.setProjectedTotal(budget.fromMinor(projected));
+        response.setProjectedOverspend(projected > totalBudget);
+
+        return response;
+    }
+
+    private static void accumulate(long[] totals, long amount, long count) {
+        totals[0] = Math.addExact(totals[0], amount);
+        totals[1] += count;
+    }
+
+    /**
+     * 整数除法，四舍五入（远离零）
+     */
+    private static long divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        return Math.abs(remainder) * 2 >= divisor ? quotient + Long.signum(dividend) : quotient;
+    }
+
+    /**
+     * 一次预算计算中的目标货币：固定使用同一份汇率矩阵，记录无法折算的币种
+     * 预算货币本身没有汇率时，只统计同币种的消费
+     */
+    private static final class BudgetCurrency {
+        private final ExchangeRateMatrix rates;
+        private final String code;
+        private final int index;
+        private final int fractionDigits;
+        private final Set<String> unconverted = new TreeSet<>();
+
+        BudgetCurrency(ExchangeRateMatrix rates, String currency) {
+            this.rates = rates;
+            this.code = ExchangeRateTable.currencyKey(currency);
+            this.index = rates.indexOf(code);
+            this.fractionDigits = ExchangeRateMatrix.fractionDigitsOf(code);
+        }
+
+        /**
+         * 该币种能否折算为预算货币，不能时记入unconverted
+         */
+        boolean accepts(String currency) {
+            if (currency.equals(code) || (index >= 0 && rates.indexOf(currency) >= 0)) {
+                return true;
+            }
+            unconverted.add(currency);
+            return false;
+        }
+
+        long toMinor(BigDecimal amount, String currency) {
+            if (currency.equals(code)) {
+                return amount.movePointRight(fractionDigits).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            }
+            return rates.toMinor(amount, rates.indexOf(currency), index);
+        }
+
+        BigDecimal fromMinor(long minor) {
+            return BigDecimal.valueOf(minor, fractionDigits);
+        }
+    }
+}
@@ -1,19 +1,30 @@
 package com.aitravelplanner.backend.service.impl;
 
+import com.aitravelplanner.backend.dto.ExpenseQuery;
 import com.aitravelplanner.backend.dto.ExpenseResponse;
+import com.aitravelplanner.backend.dto.PageResponse;
 import com.aitravelplanner.backend.model.Expense;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.User;
 import com.aitravelplanner.backend.repository.ExpenseRepository;
+import com.aitravelplanner.backend.repository.KeysetCursor;
 import com.aitravelplanner.backend.repository.TripRepository;
+import com.aitravelplanner.backend.service.ExchangeRateTable;
 import com.aitravelplanner.backend.service.ExpenseService;
+import com.aitravelplanner.backend.service.TripAccessGuard;
+import com.aitravelplanner.backend.service.TripStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -24,24 +35,26 @@ public class ExpenseServiceImpl implements ExpenseService {
     
     private final TripRepository tripRepository;
     private final ExpenseRepository expenseRepository;
+    private final TripStatsService tripStatsService;
+    private final TripAccessGuard tripAccessGuard;
+    private final int bulkMaxRows;
     
     @Autowired
-    public ExpenseServiceImpl(TripRepository tripRepository, ExpenseRepository expenseRepository) {
+    public ExpenseServiceImpl(TripRepository tripRepository, ExpenseRepository expenseRepository, TripStatsService tripStatsService,
+                              TripAccessGuard tripAccessGuard, @Value("${expense.bulk.max-rows:10000}") int bulkMaxRows) {
         this.tripRepository = tripRepository;
         this.expenseRepository = expenseRepository;
+        this.tripStatsService = tripStatsService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.bulkMaxRows = bulkMaxRows;
     }
     
     @Override
     @Transactional
     public ExpenseResponse addExpense(UUID tripId, Map<String, Object> expenseData, User user) {
-        // 获取行程并验证权限
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
-        
-        // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to add expenses to this trip");
-        }
+        // 验证用户权限，关联行程只需要引用，不查询trips表
+        tripAccessGuard.requireOwner(tripId, user);
+        Trip trip = tripRepository.getReferenceById(tripId);
         
         // 创建新的消费记录
         Expense expense = new Expense();
@@ -66,7 +79,7 @@ public class ExpenseServiceImpl implements ExpenseService {
         
         // 设置货币类型（可选，默认为CNY）
         if (expenseData.containsKey("currency")) {
-            expense.setCurrency((String) expenseData.get("currency"));
+            expense.setCurrency(ExchangeRateTable.normalizeCurrency((String) expenseData.get("currency")));
         }
         
         // 设置消费说明
@@ -86,6 +99,7 @@ public class ExpenseServiceImpl implements ExpenseService {
         
         // 保存消费记录
         Expense savedExpense = expenseRepository.save(expense);
+        tripStatsService.recordExpenseChange(tripId, savedExpense.getCurrency(), savedExpense.getAmount());
         
         return convertToResponse(savedExpense);
     }
@@ -93,81 +107,99 @@ public class ExpenseServiceImpl implements ExpenseService {
     @Override
     @Transactional
     public List<ExpenseResponse> addExpensesBatch(UUID tripId, List<Map<String, Object>> expensesData, User user) {
-        // 获取行程并验证权限
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
-        
         // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to add expenses to this trip");
+        tripAccessGuard.requireOwner(tripId, user);
+        if (expensesData == null || expensesData.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (expensesData.size() > bulkMaxRows) {
+            throw new IllegalArgumentException("Too many expenses in one batch, maximum is " + bulkMaxRows);
         }
         
-        // 批量创建消费记录
-        List<ExpenseResponse> savedExpenses = new ArrayList<>();
-        for (Map<String, Object> expenseData : expensesData) {
-            Expense expense = new Expense();
-            expense.setTrip(trip);
-            expense.setUser(user);
-            
+        // 先校验并解析全部记录，任何一条无效都不写入
+        // id在Java端生成；createdAt逐条递增1微秒，保持上传顺序
+        Instant now = Instant.now();
+        List<Expense> expenses = new ArrayList<>(expensesData.size());
+        Map<String, BigDecimal> batchTotals = new HashMap<>();
+        for (int i = 0; i < expensesData.size(); i++) {
+            Expense expense = parseBatchExpense(expensesData.get(i), i);
+            expense.setId(UUID.randomUUID());
+            expense.setCreatedAt(now.plus(i, ChronoUnit.MICROS));
+            expenses.add(expense);
+            batchTotals.merge(ExchangeRateTable.currencyKey(expense.getCurrency()), expense.getAmount(), BigDecimal::add);
+        }
+        
+        // JDBC批量写入，大批量时使用COPY
+        expenseRepository.bulkInsert(tripId, user.getId(), expenses);
+        tripStatsService.recordExpenseChanges(tripId, batchTotals);
+        
+        // 直接由解析结果构建响应，不访问懒加载关联
+        List<ExpenseResponse> savedExpenses = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            savedExpenses.add(convertToResponse(expense, tripId, user.getId()));
+        }
+        return savedExpenses;
+    }
+
+    /**
+     * 解析批量上传中的一条记录，错误信息中带上记录序号
+     */
+    private Expense parseBatchExpense(Map<String, Object> expenseData, int index) {
+        if (expenseData == null) {
+            throw new IllegalArgumentException("Expense at index " + index + " is empty");
+        }
+        Expense expense = new Expense();
+        try {
             // 设置消费金额
-            if (expenseData.containsKey("amount")) {
-                Object amountObj = expenseData.get("amount");
-                BigDecimal amount;
-                if (amountObj instanceof Number) {
-                    amount = BigDecimal.valueOf(((Number) amountObj).doubleValue());
-                } else if (amountObj instanceof String) {
-                    amount = new BigDecimal((String) amountObj);
-                } else {
-                    throw new IllegalArgumentException("Invalid amount format for one of the expenses");
-                }
-                expense.setAmount(amount);
+            Object amountObj = expenseData.get("amount");
+            if (amountObj == null) {
+                throw new IllegalArgumentException("Amount is required");
+            }
+            if (amountObj instanceof Number) {
+                expense.setAmount(BigDecimal.valueOf(((Number) amountObj).doubleValue()));
+            } else if (amountObj instanceof String) {
+                expense.setAmount(new BigDecimal((String) amountObj));
             } else {
-                throw new IllegalArgumentException("Amount is required for all expenses");
+                throw new IllegalArgumentException("Invalid amount format");
             }
             
             // 设置货币类型（可选，默认为CNY）
-            if (expenseData.containsKey("currency")) {
-                expense.setCurrency((String) expenseData.get("currency"));
+            if (expenseData.get("currency") != null) {
+                expense.setCurrency(ExchangeRateTable.normalizeCurrency((String) expenseData.get("currency")));
             }
             
-            // 设置消费说明
-            if (expenseData.containsKey("comment")) {
-                expense.setComment((String) expenseData.get("comment"));
-            }
-
+            // 设置消费说明、类别
+            expense.setComment((String) expenseData.get("comment"));
+            expense.setCategory((String) expenseData.get("category"));
+            
             // 设置消费日期
-            if (expenseData.containsKey("expenseDate")) {
+            if (expenseData.get("expenseDate") != null) {
                 expense.setExpenseDate(LocalDate.parse((String) expenseData.get("expenseDate")));
             }
-
-            // 设置类别
-            if (expenseData.containsKey("category")) {
-                expense.setCategory((String) expenseData.get("category"));
-            }
-            
-            // 保存消费记录并添加到响应列表
-            savedExpenses.add(convertToResponse(expenseRepository.save(expense)));
+        } catch (IllegalArgumentException | ClassCastException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expense at index " + index + ": " + e.getMessage());
         }
-        
-        return savedExpenses;
+        return expense;
     }
 
     @Override
     @Transactional
     public ExpenseResponse updateExpense(UUID tripId, UUID expenseId, Map<String, Object> expenseData, User user) {
-        // 验证消费记录存在且属于该行程和用户
+        // 验证用户有权限修改该行程的消费记录
+        tripAccessGuard.requireOwner(tripId, user);
+        
+        // 验证消费记录存在且属于该行程
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new IllegalArgumentException("Expense not found with id: " + expenseId));
         
-        // 验证消费记录属于指定行程
+        // 验证消费记录属于指定行程（trip是代理，取ID不会加载）
         if (!expense.getTrip().getId().equals(tripId)) {
             throw new IllegalArgumentException("Expense does not belong to the specified trip");
         }
         
-        // 验证用户有权限修改该行程的消费记录
-        if (!expense.getTrip().getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to update this expense");
-        }
+        // 修改前的金额和货币，用于计算已花费总额的差值
+        BigDecimal previousAmount = expense.getAmount();
+        String previousCurrency = expense.getCurrency();
         
         // 只更新用户提供的关键字段
         // 更新金额
@@ -186,7 +218,7 @@ public class ExpenseServiceImpl implements ExpenseService {
         
         // 更新其他可选字段
         if (expenseData.containsKey("currency")) {
-            expense.setCurrency((String) expenseData.get("currency"));
+            expense.setCurrency(ExchangeRateTable.normalizeCurrency((String) expenseData.get("currency")));
         }
         
         if (expenseData.containsKey("comment")) {
@@ -203,6 +235,10 @@ public class ExpenseServiceImpl implements ExpenseService {
         
         // 保存更新
         Expense updatedExpense = expenseRepository.save(expense);
+        Map<String, BigDecimal> deltas = new HashMap<>();
+        addDelta(deltas, previousCurrency, previousAmount, true);
+        addDelta(deltas, updatedExpense.getCurrency(), updatedExpense.getAmount(), false);
+        tripStatsService.recordExpenseChanges(tripId, deltas);
         
         return convertToResponse(updatedExpense);
     }
@@ -210,14 +246,8 @@ public class ExpenseServiceImpl implements ExpenseService {
     @Override
     @Transactional
     public void deleteExpense(UUID tripId, UUID expenseId, User user) {
-        // 获取行程并验证权限
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
-        
         // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to delete expenses for this trip");
-        }
+        tripAccessGuard.requireOwner(tripId, user);
         
         // 获取消费记录并验证它属于该行程
         Expense expense = expenseRepository.findById(expenseId)
@@ -230,18 +260,23 @@ public class ExpenseServiceImpl implements ExpenseService {
         
         // 删除消费记录
         expenseRepository.delete(expense);
+        if (expense.getAmount() != null) {
+            tripStatsService.recordExpenseChange(tripId, expense.getCurrency(), expense.getAmount().negate());
+        } else {
+            tripStatsService.recordExpenseChanges(tripId, new HashMap<>());
+        }
+    }
+
+    private static void addDelta(Map<String, BigDecimal> deltas, String currency, BigDecimal amount, boolean removed) {
+        if (amount != null) {
+            deltas.merge(ExchangeRateTable.currencyKey(currency), removed ? amount.negate() : amount, BigDecimal::add);
+        }
     }
 
     @Override
     public List<ExpenseResponse> getTripExpenses(UUID tripId, User user) {
-        // 获取行程并验证权限
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
-        
         // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to view expenses for this trip");
-        }
+        tripAccessGuard.requireOwner(tripId, user);
         
         // 查询该行程的所有消费记录并转换为响应DTO
         List<Expense> expenses = expenseRepository.findByTripId(tripId);
@@ -251,16 +286,35 @@ public class ExpenseServiceImpl implements ExpenseService {
     }
 
     @Override
-    public ExpenseResponse getExpenseDetails(UUID tripId, UUID expenseId, User user) {
-        // 获取行程并验证权限
-        Trip trip = tripRepository.findById(tripId)
-                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + tripId));
-        
+    public PageResponse<ExpenseResponse> getTripExpensesPage(UUID tripId, ExpenseQuery query, User user) {
         // 验证用户权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to view expenses for this trip");
+        tripAccessGuard.requireOwner(tripId, user);
+        
+        String direction = KeysetCursor.normalizeDirection(query.getDirection());
+        query.setDirection(direction);
+        int limit = KeysetCursor.normalizeLimit(query.getLimit());
+        KeysetCursor after = query.getCursor() != null ? KeysetCursor.decode(query.getCursor(), "createdAt", direction) : null;
+        
+        // 多取一行用于判断是否还有下一页
+        List<Expense> expenses = expenseRepository.findPageByTripId(tripId, query, after, limit + 1);
+        String nextCursor = null;
+        if (expenses.size() > limit) {
+            expenses = expenses.subList(0, limit);
+            Expense last = expenses.get(limit - 1);
+            nextCursor = new KeysetCursor("createdAt", direction, last.getCreatedAt().toString(), last.getId()).encode();
         }
         
+        List<ExpenseResponse> items = expenses.stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+        return new PageResponse<>(items, nextCursor);
+    }
+
+    @Override
+    public ExpenseResponse getExpenseDetails(UUID tripId, UUID expenseId, User user) {
+        // 验证用户权限
+        tripAccessGuard.requireOwner(tripId, user);
+        
         // 获取消费记录并验证它属于该行程
         Expense expense = expenseRepository.findById(expenseId)
                 .orElseThrow(() -> new IllegalArgumentException("Expense not found with id: " + expenseId));
@@ -273,6 +327,22 @@ public class ExpenseServiceImpl implements ExpenseService {
         return convertToResponse(expense);
     }
     
+    /**
+     * 由已知的行程和用户ID构建响应，用于批量写入后未纳入持久化上下文的记录
+     */
+    private ExpenseResponse convertToResponse(Expense expense, UUID tripId, UUID userId) {
+        ExpenseResponse response = new ExpenseResponse();
+        response.setId(expense.getId());
+        response.setUserId(userId);
+        response.setTripId(tripId);
+        response.setAmount(expense.getAmount());
+        response.setCurrency(expense.getCurrency());
+        response.setComment(expense.getComment());
+        response.setCategory(expense.getCategory());
+        response.setExpenseDate(expense.getExpenseDate());
+        return response;
+    }
+
     /**
      * 将Expense实体转换为ExpenseResponse DTO
      */
@@ -1,7 +1,10 @@
 package com.aitravelplanner.backend.service.impl;
 
 import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import com.aitravelplanner.backend.logging.LogPayloads;
 import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.service.ExpenseTextParser;
 import com.aitravelplanner.backend.service.LLMService;
 import com.alibaba.dashscope.aigc.generation.Generation;
 import com.alibaba.dashscope.aigc.generation.GenerationParam;
@@ -16,6 +19,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -31,29 +36,22 @@ public class LLMServiceImpl implements LLMService {
     @Value("${llm.qwen.model}")
     private String model;
 
+    @Value("${logging.payload.max-chars:2048}")
+    private int payloadMaxChars;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
     public List<DayPlanDTO> generatePlan(Trip trip) {
         try {
             String prompt = buildPrompt(trip);
+            String json = call(prompt);
 
-            Generation gen = new Generation();
-            Message userMsg = Message.builder()
-                    .role(Role.USER.getValue())
-                    .content(prompt)
-                    .build();
-
-            GenerationParam param = GenerationParam.builder()
-                    .apiKey(apiKey)
-                    .model(model)
-                    .messages(Collections.singletonList(userMsg))
-                    .build();
-
-            GenerationResult result = gen.call(param);
-            String json = result.getOutput().getText();
-
-            log.info("LLM 返回 JSON: {}", json);
+            // 完整内容可能有几十KB，INFO只记录长度，DEBUG输出截断后的内容
+            log.info("LLM 返回 JSON，Trip ID: {}，长度: {}", trip.getId(), json != null ? json.length() : 0);
+            if (log.isDebugEnabled()) {
+                log.debug("LLM 返回 JSON: {}", LogPayloads.truncate(json, payloadMaxChars));
+            }
 
             // 解析JSON，直接提取dayPlans数组
             JsonNode rootNode = objectMapper.readTree(json);
@@ -66,6 +64,61 @@ public class LLMServiceImpl implements LLMService {
         }
     }
 
+    @Override
+    public ExpenseParseResponse parseExpense(String text, String defaultCurrency, LocalDate today) {
+        try {
+            String json = call(buildExpensePrompt(text, defaultCurrency, today));
+            if (log.isDebugEnabled()) {
+                log.debug("LLM 记账解析返回: {}", LogPayloads.truncate(json, payloadMaxChars));
+            }
+
+            JsonNode node = objectMapper.readTree(json);
+            if (!node.hasNonNull("amount")) {
+                return null;
+            }
+            ExpenseParseResponse response = new ExpenseParseResponse();
+            response.setAmount(new BigDecimal(node.get("amount").asText()));
+            response.setCurrency(node.hasNonNull("currency") ? node.get("currency").asText() : defaultCurrency);
+            String category = node.hasNonNull("category") ? node.get("category").asText() : null;
+            response.setCategory(ExpenseTextParser.isCategory(category) ? category : ExpenseTextParser.CATEGORY_OTHER);
+            response.setExpenseDate(node.hasNonNull("expenseDate") ? LocalDate.parse(node.get("expenseDate").asText()) : today);
+            response.setComment(node.hasNonNull("comment") ? node.get("comment").asText() : text);
+            return response;
+        } catch (Exception e) {
+            log.warn("通义千问记账解析失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String call(String prompt) throws Exception {
+        Generation gen = new Generation();
+        Message userMsg = Message.builder()
+                .role(Role.USER.getValue())
+                .content(prompt)
+                .build();
+
+        GenerationParam param = GenerationParam.builder()
+                .apiKey(apiKey)
+                .model(model)
+                .messages(Collections.singletonList(userMsg))
+                .build();
+
+        GenerationResult result = gen.call(param);
+        return result.getOutput().getText();
+    }
+
+    private String buildExpensePrompt(String text, String defaultCurrency, LocalDate today) throws Exception {
+        return "从一句旅行记账的话中提取消费信息。今天是 " + today + "，未写明货币时使用 " + defaultCurrency + "。\n\n" +
+               "输入：" + objectMapper.writeValueAsString(text) + "\n\n" +
+               "要求：\n" +
+               "1. category 只能是 餐饮、住宿、交通、景点、购物、娱乐、其他 之一\n" +
+               "2. currency 为ISO 4217货币代码，expenseDate 为 yyyy-MM-dd\n" +
+               "3. 无法确定金额时 amount 为 null\n" +
+               "4. 只返回 JSON，不要包含 markdown 或额外解释\n\n" +
+               "你必须返回如下结构：\n" +
+               "{\"amount\": 35.5, \"currency\": \"CNY\", \"category\": \"交通\", \"expenseDate\": \"" + today + "\", \"comment\": \"打车\"}";
+    }
+
     private String buildPrompt(Trip trip) {
         return "你是一个专业旅行规划 AI，用户将提供目的地、天数、预算、人数以及旅行偏好，请根据以下 JSON 生成多日旅行计划，包括交通、住宿、景点、餐厅等详细信息。\n\n" +
                "输入 Trip 信息：\n" +
@@ -103,6 +156,7 @@ public class LLMServiceImpl implements LLMService {
             node.put("startDate", trip.getStartDate().toString());
             node.put("endDate", trip.getEndDate().toString());
             node.put("budgetTotal", trip.getBudgetTotal());
+            node.put("budgetCurrency", trip.getBudgetCurrency());
             node.put("companionCount", trip.getCompanionCount());
             node.set("preferences", objectMapper.valueToTree(trip.getPreferences()));
             return objectMapper.writeValueAsString(node);
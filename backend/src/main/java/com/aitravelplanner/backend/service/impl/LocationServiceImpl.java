@@ -1,15 +1,25 @@
 package com.aitravelplanner.backend.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.aitravelplanner.backend.config.CacheConfig;
 import com.aitravelplanner.backend.dto.DayPlanDTO;
 import com.aitravelplanner.backend.dto.LocationDTO;
 import com.aitravelplanner.backend.model.Location;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.repository.LocationRepository;
+import com.aitravelplanner.backend.repository.TripRepository;
 import com.aitravelplanner.backend.service.LocationService;
+import com.aitravelplanner.backend.service.TripResponseMapper;
+import com.aitravelplanner.backend.service.TripVersionService;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,10 +30,15 @@ import java.util.UUID;
 public class LocationServiceImpl implements LocationService {
     
     private final LocationRepository locationRepository;
+    private final TripRepository tripRepository;
+    private final TripVersionService tripVersionService;
     
     @Autowired
-    public LocationServiceImpl(LocationRepository locationRepository) {
+    public LocationServiceImpl(LocationRepository locationRepository, TripRepository tripRepository,
+                               TripVersionService tripVersionService) {
         this.locationRepository = locationRepository;
+        this.tripRepository = tripRepository;
+        this.tripVersionService = tripVersionService;
     }
     
     @Override
@@ -31,43 +46,83 @@ public class LocationServiceImpl implements LocationService {
         return locationRepository.findByTripId(tripId);
     }
     
+    /**
+     * 缓存由位置构建的DTO而不是实体，缓存中的对象不引用已关闭的持久化上下文；
+     * 由saveLocations和deleteByTripId精确失效
+     */
     @Override
-    public void saveLocations(Trip trip, List<DayPlanDTO> dayPlans) {
-        try {
-            // 首先删除该行程已有的位置信息
-            locationRepository.deleteByTripId(trip.getId());
-            
-            if (dayPlans != null) {
-                for (DayPlanDTO dayPlanDTO : dayPlans) {
-                    int day = dayPlanDTO.getDay();
-                    int order = 1;
-                    
-                    if (dayPlanDTO.getLocations() != null) {
-                        for (LocationDTO locationDTO : dayPlanDTO.getLocations()) {
-                            Location entity = new Location();
-                            entity.setTrip(trip);
-                            entity.setName(locationDTO.getName());
-                            entity.setLng(locationDTO.getLng());
-                            entity.setLat(locationDTO.getLat());
-                            entity.setDescription(locationDTO.getDescription());
-                            entity.setType(locationDTO.getType());
-                            
-                            // 设置关键字段
-                            entity.setDay(day);
-                            entity.setOrderIndex(order++);
-                            
-                            locationRepository.save(entity);
-                        }
+    @Cacheable(cacheNames = CacheConfig.TRIP_LOCATIONS, key = "#tripId")
+    public List<DayPlanDTO> findDayPlansByTripId(UUID tripId) {
+        List<DayPlanDTO> dayPlans = TripResponseMapper.buildDayPlansFromLocations(locationRepository.findByTripId(tripId));
+        for (DayPlanDTO dayPlan : dayPlans) {
+            dayPlan.setLocations(Collections.unmodifiableList(dayPlan.getLocations()));
+        }
+        return Collections.unmodifiableList(dayPlans);
+    }
+    
+    @Override
+    public List<Location> findByTripIds(Collection<UUID> tripIds) {
+        if (tripIds == null || tripIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return locationRepository.findByTripIdInOrderByDayAscOrderIndexAsc(tripIds);
+    }
+    
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TRIP_LOCATIONS, key = "#trip.id")
+    public boolean saveLocations(Trip trip, List<DayPlanDTO> dayPlans, String description) {
+        // 锁定行程行，串行化同一行程的并发生成；行程已被删除时不再写入
+        Trip lockedTrip = tripRepository.findByIdForUpdate(trip.getId()).orElse(null);
+        if (lockedTrip == null) {
+            return false;
+        }
+        
+        // 被替换的计划，与新计划一起交给版本历史
+        List<DayPlanDTO> previousPlan = TripResponseMapper.buildDayPlansFromLocations(
+                locationRepository.findByTripIdInOrderByDayAscOrderIndexAsc(Collections.singleton(trip.getId())));
+        List<Location> saved = new ArrayList<>();
+        
+        // 首先删除该行程已有的位置信息
+        locationRepository.deleteByTripId(trip.getId());
+        
+        if (dayPlans != null) {
+            for (DayPlanDTO dayPlanDTO : dayPlans) {
+                int day = dayPlanDTO.getDay();
+                int order = 1;
+                
+                if (dayPlanDTO.getLocations() != null) {
+                    for (LocationDTO locationDTO : dayPlanDTO.getLocations()) {
+                        Location entity = new Location();
+                        entity.setTrip(lockedTrip);
+                        entity.setName(locationDTO.getName());
+                        entity.setLng(locationDTO.getLng());
+                        entity.setLat(locationDTO.getLat());
+                        entity.setDescription(locationDTO.getDescription());
+                        entity.setType(locationDTO.getType());
+                        
+                        // 设置关键字段
+                        entity.setDay(day);
+                        entity.setOrderIndex(order++);
+                        
+                        saved.add(locationRepository.save(entity));
                     }
                 }
             }
-        } catch (Exception e) {
-            // 记录异常，但不影响主流程
-            e.printStackTrace();
         }
+        
+        // 递增计划版本，行程快照据此判断是否过期
+        int planVersion = lockedTrip.getPlanVersion() != null ? lockedTrip.getPlanVersion() : 0;
+        lockedTrip.setPlanVersion(planVersion + 1);
+        
+        // 版本中保存的是按天和顺序整理后的计划，与读取行程时看到的一致
+        tripVersionService.recordPlan(lockedTrip, previousPlan, TripResponseMapper.buildDayPlansFromLocations(saved), description);
+        return true;
     }
     
     @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.TRIP_LOCATIONS, key = "#tripId")
     public void deleteByTripId(UUID tripId) {
         locationRepository.deleteByTripId(tripId);
     }
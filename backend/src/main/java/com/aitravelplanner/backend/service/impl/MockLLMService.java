@@ -3,10 +3,12 @@ package com.aitravelplanner.backend.service.impl;
 import org.springframework.stereotype.Service;
 
 import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
 import com.aitravelplanner.backend.dto.LocationDTO;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.service.LLMService;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -72,6 +74,12 @@ public class MockLLMService implements LLMService {
         return planData;
     }
     
+    @Override
+    public ExpenseParseResponse parseExpense(String text, String defaultCurrency, LocalDate today) {
+        // 模拟实现不做解析，调用方使用本地规则的结果
+        return null;
+    }
+
     /**
      * 生成随机经度（-180到180之间）
      */
@@ -4,15 +4,24 @@ import com.aitravelplanner.backend.dto.*;
 import com.aitravelplanner.backend.model.Location;
 import com.aitravelplanner.backend.model.Trip;
 import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.KeysetCursor;
 import com.aitravelplanner.backend.repository.TripRepository;
-import com.aitravelplanner.backend.repository.ExpenseRepository;
-import com.aitravelplanner.backend.service.LocationService;
+import com.aitravelplanner.backend.service.ExchangeRateTable;
 import com.aitravelplanner.backend.service.ExpenseService;
+import com.aitravelplanner.backend.service.LocationService;
+import com.aitravelplanner.backend.service.TripAccessGuard;
+import com.aitravelplanner.backend.service.TripResponseMapper;
 import com.aitravelplanner.backend.service.TripService;
+import com.aitravelplanner.backend.service.TripSnapshot;
+import com.aitravelplanner.backend.service.TripSnapshotService;
+import com.aitravelplanner.backend.service.TripStatsService;
+import com.aitravelplanner.backend.service.TripVersionService;
 import com.aitravelplanner.backend.service.AsyncTripPlanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
@@ -26,17 +35,28 @@ public class TripServiceImpl implements TripService {
 
     private final TripRepository tripRepository;
     private final AsyncTripPlanService asyncTripPlanService;
-    private final LocationService locationService;
     private final ExpenseService expenseService;
-    private final ExpenseRepository expenseRepository;
+    private final TripResponseMapper tripResponseMapper;
+    private final TripSnapshotService tripSnapshotService;
+    private final TripAccessGuard tripAccessGuard;
+    private final TripStatsService tripStatsService;
+    private final LocationService locationService;
+    private final TripVersionService tripVersionService;
 
     @Autowired
-    public TripServiceImpl(TripRepository tripRepository, AsyncTripPlanService asyncTripPlanService, LocationService locationService, ExpenseService expenseService, ExpenseRepository expenseRepository) {
+    public TripServiceImpl(TripRepository tripRepository, AsyncTripPlanService asyncTripPlanService, ExpenseService expenseService,
+                           TripResponseMapper tripResponseMapper, TripSnapshotService tripSnapshotService,
+                           TripAccessGuard tripAccessGuard, TripStatsService tripStatsService,
+                           LocationService locationService, TripVersionService tripVersionService) {
         this.tripRepository = tripRepository;
         this.asyncTripPlanService = asyncTripPlanService;
-        this.locationService = locationService;
         this.expenseService = expenseService;
-        this.expenseRepository = expenseRepository;
+        this.tripResponseMapper = tripResponseMapper;
+        this.tripSnapshotService = tripSnapshotService;
+        this.tripAccessGuard = tripAccessGuard;
+        this.tripStatsService = tripStatsService;
+        this.locationService = locationService;
+        this.tripVersionService = tripVersionService;
     }
 
     @Override
@@ -55,53 +75,98 @@ public class TripServiceImpl implements TripService {
         trip.setStartDate(tripRequest.getStartDate());
         trip.setEndDate(tripRequest.getEndDate());
         trip.setBudgetTotal(BigDecimal.valueOf(tripRequest.getBudgetTotal()));
+        trip.setBudgetCurrency(ExchangeRateTable.normalizeCurrency(tripRequest.getBudgetCurrency()));
         trip.setCompanionCount(tripRequest.getCompanionCount());
         trip.setPreferences(tripRequest.getPreferences());
         trip.setCreatedAt(Instant.now());
         trip.setUpdatedAt(Instant.now());
 
         Trip savedTrip = tripRepository.save(trip);
+        tripAccessGuard.register(savedTrip.getId(), user.getId());
+        tripStatsService.initialize(savedTrip.getId());
+        tripSnapshotService.rebuildAfterCommit(savedTrip.getId());
         
         // 异步调用LLMService生成行程计划（不阻塞响应）
         // 通过独立的异步服务类调用，确保@Async注解生效
-        asyncTripPlanService.generatePlanAsync(savedTrip);
+        generatePlanAfterCommit(savedTrip);
         
         // 立即返回响应，不等待LLM处理完成
         // dayPlans字段会是空的，但前端会提示用户稍后查看
-        return convertToResponse(savedTrip);
+        return tripResponseMapper.toResponse(savedTrip);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<TripResponse> getTripsByUser(User user) {
-        List<Trip> trips = tripRepository.findByUser(user);
-        return trips.stream()
-                .map(this::convertToResponse)
-                .collect(java.util.stream.Collectors.toList());
+        // 行程及偏好一次查询，所有行程的位置再一次查询，查询次数与行程数量无关
+        List<Trip> trips = tripRepository.findDistinctByUserIdOrderByCreatedAtDesc(user.getId());
+        return tripResponseMapper.toResponses(trips, user.getId(), true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TripResponse> getTripSummariesByUser(User user) {
+        // 摘要视图不查询位置表，dayPlans保持为空
+        List<Trip> trips = tripRepository.findDistinctByUserIdOrderByCreatedAtDesc(user.getId());
+        return tripResponseMapper.toResponses(trips, user.getId(), false);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PageResponse<TripResponse> getTripsPage(User user, TripQuery query) {
+        String sort = query.getSort() == null ? "createdAt" : query.getSort();
+        if (!"createdAt".equals(sort) && !"startDate".equals(sort)) {
+            throw new IllegalArgumentException("Unsupported sort field: " + sort);
+        }
+        query.setSort(sort);
+        String direction = KeysetCursor.normalizeDirection(query.getDirection());
+        query.setDirection(direction);
+
+        int limit = KeysetCursor.normalizeLimit(query.getLimit());
+        KeysetCursor after = query.getCursor() != null ? KeysetCursor.decode(query.getCursor(), sort, direction) : null;
+
+        // 多取一行用于判断是否还有下一页
+        List<Trip> trips = tripRepository.findPageByUserId(user.getId(), query, after, limit + 1);
+        String nextCursor = null;
+        if (trips.size() > limit) {
+            trips = trips.subList(0, limit);
+            Trip last = trips.get(limit - 1);
+            Object key = "startDate".equals(sort) ? last.getStartDate() : last.getCreatedAt();
+            nextCursor = new KeysetCursor(sort, direction, key != null ? key.toString() : null, last.getId()).encode();
+        }
+
+        boolean withDayPlans = !"summary".equalsIgnoreCase(query.getView());
+        return new PageResponse<>(tripResponseMapper.toResponses(trips, user.getId(), withDayPlans), nextCursor);
     }
 
     @Override
     public TripResponse getTripById(UUID id, User user) {
+        // 验证权限，所有者ID来自内存缓存
+        tripAccessGuard.requireOwner(id, user);
         Trip trip = tripRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + id));
         
-        // 验证权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to access this trip");
-        }
+        return tripResponseMapper.toResponse(trip);
+    }
+
+    @Override
+    public TripSnapshot getTripSnapshot(UUID id, User user) {
+        // 验证权限，所有者ID来自内存缓存
+        tripAccessGuard.requireOwner(id, user);
+        // 行程来自二级缓存，版本一致时直接返回已序列化的快照
+        Trip trip = tripRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + id));
         
-        return convertToResponse(trip);
+        return tripSnapshotService.getCurrent(trip);
     }
 
     @Override
     @Transactional
     public TripResponse updateTrip(UUID id, TripRequest tripRequest, User user) {
+        // 验证权限，所有者ID来自内存缓存
+        tripAccessGuard.requireOwner(id, user);
         Trip trip = tripRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + id));
-        
-        // 验证权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to update this trip");
-        }
 
         // 验证日期合法性
         if (tripRequest.getEndDate().isBefore(tripRequest.getStartDate())) {
@@ -114,6 +179,9 @@ public class TripServiceImpl implements TripService {
         trip.setStartDate(tripRequest.getStartDate());
         trip.setEndDate(tripRequest.getEndDate());
         trip.setBudgetTotal(BigDecimal.valueOf(tripRequest.getBudgetTotal()));
+        if (tripRequest.getBudgetCurrency() != null) {
+            trip.setBudgetCurrency(ExchangeRateTable.normalizeCurrency(tripRequest.getBudgetCurrency()));
+        }
         trip.setUpdatedAt(Instant.now());
         
         // 更新新添加的字段
@@ -121,100 +189,65 @@ public class TripServiceImpl implements TripService {
         trip.setPreferences(tripRequest.getPreferences());
 
         Trip updatedTrip = tripRepository.save(trip);
+        tripSnapshotService.rebuildAfterCommit(id);
         
         // 异步调用LLMService重新生成行程计划（不阻塞响应）
-        asyncTripPlanService.generatePlanAsync(updatedTrip);
+        generatePlanAfterCommit(updatedTrip);
         
         // 立即返回响应，不等待LLM处理完成
-        return convertToResponse(updatedTrip);
+        return tripResponseMapper.toResponse(updatedTrip);
     }
 
     @Override
     @Transactional
     public void deleteTrip(UUID id, User user) {
+        // 验证权限，所有者ID来自内存缓存
+        tripAccessGuard.requireOwner(id, user);
         Trip trip = tripRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + id));
-        
-        // 验证权限
-        if (!trip.getUser().getId().equals(user.getId())) {
-            throw new IllegalArgumentException("You don't have permission to delete this trip");
-        }
 
-        // 级联删除顺序：
-        // 1. 删除locations表中的相关记录
-        locationService.deleteByTripId(id);
+        // 只标记删除，响应不等待级联删除；位置、消费记录、统计和行程本身由TripReaper分批清理。
+        // 按实体更新，只写这一行并同步二级缓存中的这一条
+        trip.setDeletedAt(Instant.now());
         
-        // 2. 删除expenses表中的相关记录
-        expenseRepository.deleteByTripId(id);
+        // 取消尚未完成的计划生成；已在写入的生成会在锁定行程行后发现行程已删除
+        asyncTripPlanService.cancel(id);
         
-        // 3. 删除trips表中的记录（删除Trip时会自动级联删除trip_preferences表中的记录）
-        tripRepository.delete(trip);
+        tripSnapshotService.invalidate(id);
+        tripAccessGuard.invalidate(id);
     }
-    
-    /**
-     * 将Trip实体转换为TripResponse DTO
-     */
-    private TripResponse convertToResponse(Trip trip) {
-        TripResponse response = new TripResponse();
-        response.setId(trip.getId());
-        response.setUserId(trip.getUser().getId());
-        response.setTitle(trip.getTitle());
-        response.setDestination(trip.getDestination());
-        response.setStartDate(trip.getStartDate());
-        response.setEndDate(trip.getEndDate());
-        response.setBudgetTotal(trip.getBudgetTotal());
-        response.setCompanionCount(trip.getCompanionCount());
-        response.setPreferences(trip.getPreferences());
-        
-        // 从数据库中查询位置信息并构建行程计划
-        List<Location> locations = locationService.findByTripId(trip.getId());
-        List<DayPlanDTO> dayPlans = buildDayPlansFromLocations(locations);
-        response.setDayPlans(dayPlans);
-        
-        response.setCreatedAt(trip.getCreatedAt());
-        response.setUpdatedAt(trip.getUpdatedAt());
-        return response;
+
+    @Override
+    @Transactional
+    public TripResponse restoreVersion(UUID id, int version, User user) {
+        // 验证权限，所有者ID来自内存缓存
+        tripAccessGuard.requireOwner(id, user);
+        Trip trip = tripRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Trip not found with id: " + id));
+        List<DayPlanDTO> plan = tripVersionService.loadPlan(id, version);
+
+        // 进行中的生成不再覆盖恢复的计划
+        asyncTripPlanService.cancel(id);
+        locationService.saveLocations(trip, plan, TripVersionService.restoredDescription(version));
+        tripSnapshotService.rebuildAfterCommit(id);
+
+        return tripResponseMapper.toResponse(trip);
     }
-    
+
     /**
-     * 从Location列表构建DayPlanDTO列表
+     * 事务提交后再提交计划生成任务：未提交时异步线程读不到新行程或更新后的字段，
+     * 事务回滚时也不会生成
      */
-    private List<DayPlanDTO> buildDayPlansFromLocations(List<Location> locations) {
-        List<DayPlanDTO> planData = new ArrayList<>();
-        
-        // 按天分组
-        Map<Integer, List<Location>> locationsByDay = locations.stream()
-                .collect(Collectors.groupingBy(Location::getDay));
-        
-        // 遍历每一天
-        for (Integer day : locationsByDay.keySet().stream().sorted().collect(Collectors.toList())) {
-            DayPlanDTO dayPlanDTO = new DayPlanDTO();
-            dayPlanDTO.setDay(day);
-            
-            // 按顺序索引排序位置
-            List<LocationDTO> locationDTOs = locationsByDay.get(day).stream()
-                    .sorted(Comparator.comparing(Location::getOrderIndex))
-                    .map(this::convertToLocationDTO)
-                    .collect(Collectors.toList());
-            
-            dayPlanDTO.setLocations(locationDTOs);
-            planData.add(dayPlanDTO);
+    private void generatePlanAfterCommit(Trip trip) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    asyncTripPlanService.generatePlanAsync(trip);
+                }
+            });
+        } else {
+            asyncTripPlanService.generatePlanAsync(trip);
         }
-        
-        return planData;
-    }
-    
-    /**
-     * 将Location实体转换为LocationDTO
-     */
-    private LocationDTO convertToLocationDTO(Location location) {
-        LocationDTO dto = new LocationDTO();
-        dto.setName(location.getName());
-        dto.setLng(location.getLng());
-        dto.setLat(location.getLat());
-        dto.setDescription(location.getDescription());
-        dto.setType(location.getType());
-        return dto;
     }
-    
 }
@@ -0,0 +1,24 @@
+package com.aitravelplanner.backend.voice;
+
+/**
+ * 一次流式识别，由单个请求线程顺序调用，实现不需要线程安全
+ */
+public interface RecognitionSession extends AutoCloseable {
+
+    /**
+     * 送入一帧音频，buffer在调用返回后会被复用，实现需要时自行复制
+     * @return 识别文本有更新时返回当前的部分结果，否则返回null
+     */
+    String accept(byte[] buffer, int length);
+
+    /**
+     * 音频结束，返回最终识别结果
+     */
+    String finish();
+
+    /**
+     * 释放会话资源，上传中断时也会调用
+     */
+    @Override
+    void close();
+}
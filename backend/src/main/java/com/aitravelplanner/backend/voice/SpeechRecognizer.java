@@ -0,0 +1,21 @@
+package com.aitravelplanner.backend.voice;
+
+/**
+ * 语音识别引擎
+ * 每次上传打开一个识别会话，音频帧到达后立即送入会话，不等待整段录音
+ */
+public interface SpeechRecognizer {
+
+    /**
+     * 引擎名称，用于日志和指标
+     */
+    String getName();
+
+    /**
+     * 打开识别会话
+     * @param contentType 上传的音频类型，如 audio/pcm、audio/wav
+     * @param sampleRate 采样率（Hz），PCM音频需要
+     * @param language 识别语言，如 zh-CN、en-US
+     */
+    RecognitionSession open(String contentType, int sampleRate, String language);
+}
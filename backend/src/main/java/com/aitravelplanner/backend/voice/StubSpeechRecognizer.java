@@ -0,0 +1,69 @@
+package com.aitravelplanner.backend.voice;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 本地替身引擎，用于开发和测试：把上传内容当作UTF-8文本“识别”
+ * 每收到一帧就返回目前为止的文本，与真实引擎一样逐步给出部分结果；跨帧截断的多字节字符留到下一帧解码
+ */
+@Component
+@ConditionalOnProperty(name = "voice.engine", havingValue = "stub", matchIfMissing = true)
+public class StubSpeechRecognizer implements SpeechRecognizer {
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public RecognitionSession open(String contentType, int sampleRate, String language) {
+        return new StubSession();
+    }
+
+    private static final class StubSession implements RecognitionSession {
+
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final StringBuilder text = new StringBuilder();
+        // 上一帧末尾未解码完的字节
+        private ByteBuffer pending = ByteBuffer.allocate(0);
+
+        @Override
+        public String accept(byte[] buffer, int length) {
+            ByteBuffer input = ByteBuffer.allocate(pending.remaining() + length);
+            input.put(pending).put(buffer, 0, length).flip();
+            CharBuffer output = CharBuffer.allocate(input.remaining());
+            decoder.decode(input, output, false);
+            pending = input;
+            output.flip();
+            if (!output.hasRemaining()) {
+                return null;
+            }
+            text.append(output);
+            return text.toString().trim();
+        }
+
+        @Override
+        public String finish() {
+            CharBuffer output = CharBuffer.allocate(pending.remaining() + 1);
+            decoder.decode(pending, output, true);
+            decoder.flush(output);
+            output.flip();
+            text.append(output);
+            return text.toString().trim();
+        }
+
+        @Override
+        public void close() {
+            // 没有外部资源
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.aitravelplanner.backend.voice;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * 流式语音识别：从请求体逐帧读取音频送入识别引擎，只复用一个帧缓冲区，不在堆上保存整段录音
+ * 每次read返回的数据立即送出，部分结果由回调即时写回客户端
+ */
+@Service
+@Slf4j
+public class VoiceTranscriptionService {
+
+    private final SpeechRecognizer speechRecognizer;
+    private final int frameBytes;
+    private final long maxBytes;
+
+    public VoiceTranscriptionService(SpeechRecognizer speechRecognizer,
+                                     @Value("${voice.frame-bytes:3200}") int frameBytes,
+                                     @Value("${voice.max-bytes:20971520}") long maxBytes) {
+        this.speechRecognizer = speechRecognizer;
+        this.frameBytes = frameBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 识别一段上传中的音频
+     * @param partials 接收部分结果，文本有变化时才调用
+     * @return 最终识别结果
+     */
+    public String transcribe(InputStream audio, String contentType, int sampleRate, String language,
+                             Consumer<String> partials) throws IOException {
+        byte[] frame = new byte[frameBytes];
+        long total = 0;
+        String lastPartial = null;
+        long start = System.nanoTime();
+        try (RecognitionSession session = speechRecognizer.open(contentType, sampleRate, language)) {
+            int read;
+            while ((read = audio.read(frame)) != -1) {
+                if (read == 0) {
+                    continue;
+                }
+                total += read;
+                if (total > maxBytes) {
+                    throw new IllegalArgumentException("Audio exceeds the maximum size of " + maxBytes + " bytes");
+                }
+                String partial = session.accept(frame, read);
+                if (partial != null && !partial.equals(lastPartial)) {
+                    lastPartial = partial;
+                    partials.accept(partial);
+                }
+            }
+            String text = session.finish();
+            log.debug("Transcribed {} bytes with {} engine in {} ms", total, speechRecognizer.getName(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return text;
+        }
+    }
+}
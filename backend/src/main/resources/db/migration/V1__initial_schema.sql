@@ -0,0 +1,66 @@
+-- 初始表结构，与此前由 ddl-auto 生成的结构一致
+-- 已有数据库（由 ddl-auto 建表、没有迁移历史）以版本0为基线后也会执行本脚本，所有语句均可重复执行
+
+create table if not exists users (
+    id            uuid default gen_random_uuid() not null,
+    email         varchar(255) not null unique,
+    password_hash varchar(255) not null,
+    created_at    timestamp,
+    updated_at    timestamp,
+    primary key (id)
+);
+
+create table if not exists trips (
+    id              uuid default gen_random_uuid() not null,
+    user_id         uuid not null references users (id),
+    title           varchar(255),
+    destination     varchar(255),
+    start_date      date,
+    end_date        date,
+    budget_total    numeric(19, 2),
+    companion_count int4,
+    created_at      timestamp,
+    updated_at      timestamp,
+    primary key (id)
+);
+
+create table if not exists trip_preferences (
+    trip_id    uuid not null references trips (id),
+    preference varchar(255)
+);
+
+create table if not exists locations (
+    id          uuid default gen_random_uuid() not null,
+    trip_id     uuid references trips (id),
+    name        varchar(255),
+    lng         float8,
+    lat         float8,
+    description varchar(255),
+    type        varchar(255),
+    day         int4,
+    order_index int4,
+    primary key (id)
+);
+
+create table if not exists expenses (
+    id           uuid default gen_random_uuid() not null,
+    trip_id      uuid not null references trips (id),
+    user_id      uuid not null references users (id),
+    amount       numeric(19, 2),
+    currency     varchar(255),
+    comment      varchar(255),
+    category     varchar(255),
+    expense_date date,
+    created_at   timestamp,
+    primary key (id)
+);
+
+create table if not exists trip_versions (
+    id          uuid default gen_random_uuid() not null,
+    trip_id     uuid not null references trips (id),
+    version     int4,
+    plan_data   jsonb,
+    description varchar(255),
+    created_at  timestamp,
+    primary key (id)
+);
@@ -0,0 +1,53 @@
+-- 之后加入的列和表：token版本与刷新token、行程计划版本、预算货币与汇率、消费统计、软删除
+-- 新增列先允许为空，回填后再设置默认值和非空约束
+
+alter table users add column if not exists token_version int4;
+update users set token_version = 0 where token_version is null;
+
+alter table trips add column if not exists plan_version int4;
+update trips set plan_version = 0 where plan_version is null;
+
+alter table trips add column if not exists budget_currency varchar(3);
+update trips set budget_currency = 'CNY' where budget_currency is null;
+alter table trips alter column budget_currency set default 'CNY';
+alter table trips alter column budget_currency set not null;
+
+alter table trips add column if not exists deleted_at timestamp;
+
+-- 消费记录的货币统一为大写的ISO代码，空值按人民币处理，与预算统计的取值一致
+update expenses set currency = 'CNY' where currency is null or trim(currency) = '';
+update expenses set currency = upper(trim(currency)) where currency <> upper(trim(currency));
+
+create table if not exists refresh_tokens (
+    id            uuid not null,
+    user_id       uuid not null,
+    family_id     uuid not null,
+    token_hash    bytea not null unique,
+    token_version int4 not null,
+    expires_at    timestamp not null,
+    revoked       boolean not null,
+    created_at    timestamp,
+    primary key (id)
+);
+
+-- trip_stats 和 trip_spend_totals 不在此回填：缺失的行在首次记账时按消费记录汇总创建，启动时的对账也会补齐
+create table if not exists trip_stats (
+    trip_id         uuid not null,
+    expense_version int8,
+    primary key (trip_id)
+);
+
+create table if not exists trip_spend_totals (
+    trip_id  uuid not null,
+    currency varchar(255) not null,
+    amount   numeric(19, 2) not null,
+    primary key (trip_id, currency)
+);
+
+-- 表为空时由应用从 exchange-rates.csv 写入参考汇率
+create table if not exists exchange_rates (
+    currency     varchar(3) not null,
+    rate_to_base numeric(24, 12) not null,
+    updated_at   timestamp,
+    primary key (currency)
+);
@@ -0,0 +1,27 @@
+-- 各高频查询对应的索引，列顺序与查询的过滤和排序一致
+-- 使用 concurrently 建索引不阻塞写入，Flyway 会在事务外执行本脚本；
+-- 建索引中途失败会留下无效索引，需要先删除再重新执行迁移
+
+-- 行程列表：按用户、创建时间或开始日期的keyset分页
+create index concurrently if not exists idx_trips_user_created on trips (user_id, created_at, id);
+create index concurrently if not exists idx_trips_user_start on trips (user_id, start_date, id);
+
+-- 后台清理：只索引已删除的行程
+create index concurrently if not exists idx_trips_deleted on trips (deleted_at) where deleted_at is not null;
+
+-- 行程偏好集合按行程加载
+create index concurrently if not exists idx_trip_preferences_trip on trip_preferences (trip_id);
+
+-- 行程计划和位置：按行程、天数、当天顺序
+create index concurrently if not exists idx_locations_trip_day_order on locations (trip_id, day, order_index);
+
+-- 消费记录：按行程keyset分页；按行程和消费日期过滤、预算分析
+create index concurrently if not exists idx_expenses_trip_created on expenses (trip_id, created_at, id);
+create index concurrently if not exists idx_expenses_trip_date on expenses (trip_id, expense_date);
+
+-- 行程版本：每个行程内版本号唯一
+create unique index concurrently if not exists uk_trip_versions_trip_version on trip_versions (trip_id, version);
+
+-- 刷新token：按家族吊销、按用户吊销全部
+create index concurrently if not exists idx_refresh_tokens_family on refresh_tokens (family_id);
+create index concurrently if not exists idx_refresh_tokens_user on refresh_tokens (user_id);
@@ -0,0 +1,3 @@
+-- 行程版本历史：plan_data 为完整计划（关键帧）或相对上一版本的 JSON Patch，由 keyframe 区分
+-- 已有的版本行都保存的是完整计划
+alter table trip_versions add column if not exists keyframe boolean not null default true;
@@ -0,0 +1,121 @@
+package com.aitravelplanner.backend.repository;
+
+import com.aitravelplanner.backend.Application;
+import com.aitravelplanner.backend.model.Expense;
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量上传消费记录的写入耗时：JDBC批处理与COPY，10到10000行
+ * 需要Docker，启动PostgreSQL容器和完整的应用上下文；每次写入在回滚的事务中进行，表大小保持不变
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseBulkInsertBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int rows;
+
+    @Param({"batch", "copy"})
+    private String path;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private ExpenseRepositoryImpl expenseRepository;
+    private TransactionTemplate transactionTemplate;
+    private UUID tripId;
+    private UUID userId;
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        context = new SpringApplicationBuilder(Application.class).properties(
+                "spring.datasource.url=" + postgres.getJdbcUrl(),
+                "spring.datasource.username=" + postgres.getUsername(),
+                "spring.datasource.password=" + postgres.getPassword(),
+                "server.port=0",
+                "management.server.port=0",
+                "jwt.secret=bulk-insert-benchmark-secret-bulk-insert-benchmark",
+                "jwt.expiration-ms=3600000",
+                "llm.qwen.apiKey=benchmark",
+                "trip.purge.enabled=false",
+                "budget.reconcile.enabled=false").run();
+
+        expenseRepository = context.getBean(ExpenseRepositoryImpl.class);
+        // 行数不超过阈值时走JDBC批处理，超过时走COPY
+        ReflectionTestUtils.setField(expenseRepository, "copyThreshold", "copy".equals(path) ? 0 : Integer.MAX_VALUE);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+
+        User user = new User();
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user = context.getBean(UserRepository.class).save(user);
+        Trip trip = new Trip();
+        trip.setUser(user);
+        trip.setTitle("批量写入");
+        trip.setDestination("东京");
+        trip = context.getBean(TripRepository.class).save(trip);
+        userId = user.getId();
+        tripId = trip.getId();
+
+        expenses = new ArrayList<>(rows);
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        for (int i = 0; i < rows; i++) {
+            Expense expense = new Expense();
+            expense.setId(UUID.randomUUID());
+            expense.setAmount(BigDecimal.valueOf(1000 + i % 5000, 2));
+            expense.setCurrency(i % 3 == 0 ? "JPY" : "CNY");
+            expense.setComment("午饭 \"拉面\" #" + i);
+            expense.setCategory("餐饮");
+            expense.setExpenseDate(LocalDate.of(2026, 4, 1).plusDays(i % 7));
+            expense.setCreatedAt(createdAt.plus(i, ChronoUnit.MICROS));
+            expenses.add(expense);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void bulkInsert() {
+        transactionTemplate.executeWithoutResult(status -> {
+            expenseRepository.bulkInsert(tripId, userId, expenses);
+            status.setRollbackOnly();
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.aitravelplanner.backend.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 认证过滤器每个请求的token校验开销
+ * legacyFilterPath 为改动前过滤器的做法（取用户名后校验时再取用户名和过期时间，共三次解析验签），
+ * singleParse 为缓存未命中时的一次解析验签，verifyCached 为缓存命中；
+ * 前两者使用与 JwtUtil 相同密钥的独立解析器
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "jwt-benchmark-secret-jwt-benchmark-secret-0123456789";
+
+    private JwtUtil jwtUtil;
+    private JwtParser parser;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "SECRET_KEY", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "JWT_EXPIRATION", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheMaxSize", 10000L);
+        jwtUtil.init();
+        token = jwtUtil.generateToken(UUID.randomUUID(), "bench@example.com", 3);
+        parser = Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build();
+    }
+
+    @Benchmark
+    public void legacyFilterPath(Blackhole blackhole) {
+        blackhole.consume(parser.parseClaimsJws(token).getBody().getSubject());
+        blackhole.consume(parser.parseClaimsJws(token).getBody().getSubject());
+        blackhole.consume(parser.parseClaimsJws(token).getBody().getExpiration());
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public VerifiedToken verifyCached() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,106 @@
+package com.aitravelplanner.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多币种消费折算为预算货币并求和
+ * bigDecimalSum 为逐笔用BigDecimal乘除汇率再相加，minorUnitSum 为预算统计使用的做法
+ * （原币金额转为最小单位后经汇率矩阵折算，以long累加），minorUnitConvertSum 只包含矩阵换算本身
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExchangeRateMatrixBenchmark {
+
+    private static final String BUDGET_CURRENCY = "CNY";
+
+    @Param({"100", "10000"})
+    private int expenses;
+
+    private ExchangeRateMatrix matrix;
+    private Map<String, BigDecimal> ratesToBase;
+    private BigDecimal[] amounts;
+    private String[] currencies;
+    private int[] currencyIndexes;
+    private long[] minorAmounts;
+    private int budgetIndex;
+
+    @Setup
+    public void setUp() {
+        ratesToBase = new LinkedHashMap<>();
+        ratesToBase.put("CNY", BigDecimal.ONE);
+        ratesToBase.put("USD", new BigDecimal("7.1234"));
+        ratesToBase.put("EUR", new BigDecimal("7.7021"));
+        ratesToBase.put("JPY", new BigDecimal("0.047812"));
+        ratesToBase.put("KRW", new BigDecimal("0.0051937"));
+        ratesToBase.put("HKD", new BigDecimal("0.91138"));
+        ratesToBase.put("GBP", new BigDecimal("9.0125"));
+        ratesToBase.put("THB", new BigDecimal("0.19702"));
+        matrix = new ExchangeRateMatrix(ratesToBase, 1L);
+        budgetIndex = matrix.indexOf(BUDGET_CURRENCY);
+
+        String[] codes = ratesToBase.keySet().toArray(new String[0]);
+        Random random = new Random(42);
+        amounts = new BigDecimal[expenses];
+        currencies = new String[expenses];
+        currencyIndexes = new int[expenses];
+        minorAmounts = new long[expenses];
+        for (int i = 0; i < expenses; i++) {
+            currencies[i] = codes[random.nextInt(codes.length)];
+            currencyIndexes[i] = matrix.indexOf(currencies[i]);
+            int digits = ExchangeRateMatrix.fractionDigitsOf(currencies[i]);
+            amounts[i] = BigDecimal.valueOf(random.nextInt(5_000_000), digits);
+            minorAmounts[i] = matrix.toMinor(amounts[i], currencyIndexes[i]);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalSum() {
+        BigDecimal budgetRate = ratesToBase.get(BUDGET_CURRENCY);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < expenses; i++) {
+            total = total.add(amounts[i].multiply(ratesToBase.get(currencies[i]))
+                    .divide(budgetRate, MathContext.DECIMAL128));
+        }
+        return total.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    @Benchmark
+    public long minorUnitSum() {
+        long total = 0;
+        for (int i = 0; i < expenses; i++) {
+            total = Math.addExact(total, matrix.toMinor(amounts[i], matrix.indexOf(currencies[i]), budgetIndex));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minorUnitConvertSum() {
+        long total = 0;
+        for (int i = 0; i < expenses; i++) {
+            total = Math.addExact(total, matrix.convert(minorAmounts[i], currencyIndexes[i], budgetIndex));
+        }
+        return total;
+    }
+}
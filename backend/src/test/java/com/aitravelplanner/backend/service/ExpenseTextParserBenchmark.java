@@ -0,0 +1,57 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.ExpenseParseResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一句话记账的本地解析吞吐量（每毫秒解析的短句数），短句覆盖中英文、货币、相对日期和中文数字
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpenseTextParserBenchmark {
+
+    private static final String[] PHRASES = {
+            "打车 35 元",
+            "昨天晚饭 128.5",
+            "dinner 120 yen yesterday",
+            "前天 酒店 两晚 860元",
+            "地铁票 4块",
+            "门票 ¥60 故宫",
+            "coffee $4.50 this morning",
+            "买纪念品花了三百二十元",
+            "3月5日 新干线 14,170 日元",
+            "taxi 25 usd last night",
+            "上周五 KTV 300",
+            "2 tickets museum 30 eur",
+            "奶茶 两杯 26",
+            "2026-04-01 hotel 1,280 hkd",
+            "小费 10",
+            "4/12 ramen 980 jpy"
+    };
+
+    private final ExpenseTextParser parser = new ExpenseTextParser();
+    private final LocalDate today = LocalDate.of(2026, 4, 15);
+    private int next;
+
+    @Benchmark
+    public ExpenseParseResponse parse() {
+        String phrase = PHRASES[next];
+        next = (next + 1) % PHRASES.length;
+        return parser.parse(phrase, "CNY", today);
+    }
+}
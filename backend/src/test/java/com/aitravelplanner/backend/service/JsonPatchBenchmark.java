@@ -0,0 +1,61 @@
+package com.aitravelplanner.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 版本历史保存补丁和读取版本的开销：生成相对上一版本的补丁、在上一版本上应用补丁
+ * 计划的修改方式与 PlanDiffBenchmark 相同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonPatchBenchmark {
+
+    @Param({"5", "30"})
+    private int days;
+
+    @Param({"6", "100"})
+    private int stopsPerDay;
+
+    private JsonNode source;
+    private JsonNode target;
+    private JsonNode patch;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        source = objectMapper.valueToTree(PlanFixtures.plan(days, stopsPerDay, 1L));
+        target = objectMapper.valueToTree(PlanFixtures.edit(PlanFixtures.plan(days, stopsPerDay, 1L), 0.05, 2L));
+        patch = JsonPatch.diff(source, target);
+        if (!JsonPatch.apply(source, patch).equals(target)) {
+            throw new IllegalStateException("Patch does not reproduce the target plan");
+        }
+    }
+
+    @Benchmark
+    public JsonNode diff() {
+        return JsonPatch.diff(source, target);
+    }
+
+    @Benchmark
+    public JsonNode apply() {
+        return JsonPatch.apply(source, patch);
+    }
+}
@@ -0,0 +1,56 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.PlanDiffResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两个版本计划的结构化差异耗时；地点总数从常见的几十个到几千个，
+ * 新版本中约5%的地点分别被删除、新增、跨天移动、当天换序和修改
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanDiffBenchmark {
+
+    @Param({"5", "30"})
+    private int days;
+
+    @Param({"6", "100"})
+    private int stopsPerDay;
+
+    private List<DayPlanDTO> from;
+    private List<DayPlanDTO> to;
+
+    @Setup
+    public void setUp() {
+        from = PlanFixtures.plan(days, stopsPerDay, 1L);
+        to = PlanFixtures.edit(from, 0.05, 2L);
+    }
+
+    @Benchmark
+    public PlanDiffResponse diff() {
+        return PlanDiff.diff(from, to);
+    }
+
+    @Benchmark
+    public PlanDiffResponse diffIdentical() {
+        return PlanDiff.diff(from, from);
+    }
+}
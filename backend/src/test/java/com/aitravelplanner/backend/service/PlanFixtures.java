@@ -0,0 +1,107 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.DayPlanDTO;
+import com.aitravelplanner.backend.dto.LocationDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的行程计划：随机生成的多天计划，以及在其上做少量增删、跨天移动、当天换序和字段修改的新版本
+ */
+final class PlanFixtures {
+
+    private PlanFixtures() {
+    }
+
+    static List<DayPlanDTO> plan(int days, int stopsPerDay, long seed) {
+        Random random = new Random(seed);
+        List<DayPlanDTO> plan = new ArrayList<>();
+        int next = 0;
+        for (int day = 1; day <= days; day++) {
+            DayPlanDTO dayPlan = new DayPlanDTO();
+            dayPlan.setDay(day);
+            dayPlan.setLocations(new ArrayList<>());
+            for (int i = 0; i < stopsPerDay; i++) {
+                dayPlan.getLocations().add(location("景点 " + next++, random));
+            }
+            plan.add(dayPlan);
+        }
+        return plan;
+    }
+
+    /**
+     * 复制计划后按比例修改，ratio为每种修改占地点总数的比例
+     */
+    static List<DayPlanDTO> edit(List<DayPlanDTO> source, double ratio, long seed) {
+        Random random = new Random(seed);
+        List<DayPlanDTO> plan = new ArrayList<>();
+        int stops = 0;
+        for (DayPlanDTO day : source) {
+            DayPlanDTO copy = new DayPlanDTO();
+            copy.setDay(day.getDay());
+            copy.setLocations(new ArrayList<>());
+            for (LocationDTO location : day.getLocations()) {
+                copy.getLocations().add(copy(location));
+            }
+            stops += day.getLocations().size();
+            plan.add(copy);
+        }
+
+        int changes = Math.max(1, (int) (stops * ratio));
+        for (int i = 0; i < changes; i++) {
+            // 删除
+            List<LocationDTO> removeFrom = randomDay(plan, random);
+            if (!removeFrom.isEmpty()) {
+                removeFrom.remove(random.nextInt(removeFrom.size()));
+            }
+            // 新增
+            List<LocationDTO> addTo = randomDay(plan, random);
+            addTo.add(random.nextInt(addTo.size() + 1), location("新地点 " + i, random));
+            // 跨天移动
+            List<LocationDTO> moveFrom = randomDay(plan, random);
+            if (!moveFrom.isEmpty()) {
+                List<LocationDTO> moveTo = randomDay(plan, random);
+                moveTo.add(random.nextInt(moveTo.size() + 1), moveFrom.remove(random.nextInt(moveFrom.size())));
+            }
+            // 当天换序
+            List<LocationDTO> reorder = randomDay(plan, random);
+            if (reorder.size() > 1) {
+                reorder.add(random.nextInt(reorder.size()), reorder.remove(random.nextInt(reorder.size())));
+            }
+            // 修改字段
+            List<LocationDTO> editIn = randomDay(plan, random);
+            if (!editIn.isEmpty()) {
+                LocationDTO location = editIn.get(random.nextInt(editIn.size()));
+                location.setDescription(location.getDescription() + "（已更新）");
+                location.setLat(location.getLat() + 0.0001);
+            }
+        }
+        return plan;
+    }
+
+    private static List<LocationDTO> randomDay(List<DayPlanDTO> plan, Random random) {
+        return plan.get(random.nextInt(plan.size())).getLocations();
+    }
+
+    private static LocationDTO location(String name, Random random) {
+        LocationDTO location = new LocationDTO();
+        location.setName(name);
+        location.setLng(120 + random.nextDouble());
+        location.setLat(30 + random.nextDouble());
+        location.setDescription(name + " 的简介，开放时间9:00-17:00");
+        location.setType(random.nextBoolean() ? "attraction" : "restaurant");
+        return location;
+    }
+
+    private static LocationDTO copy(LocationDTO source) {
+        LocationDTO location = new LocationDTO();
+        location.setName(source.getName());
+        location.setLng(source.getLng());
+        location.setLat(source.getLat());
+        location.setDescription(source.getDescription());
+        location.setType(source.getType());
+        return location;
+    }
+}
@@ -0,0 +1,154 @@
+package com.aitravelplanner.backend.service;
+
+import com.aitravelplanner.backend.dto.TripResponse;
+import com.aitravelplanner.backend.model.Location;
+import com.aitravelplanner.backend.model.Trip;
+import com.aitravelplanner.backend.model.User;
+import com.aitravelplanner.backend.repository.LocationRepository;
+import com.aitravelplanner.backend.repository.TripRepository;
+import com.aitravelplanner.backend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 行程列表的查询次数与行程数量无关
+ * 语句由数据源代理计入 db.statements，测试期间关闭会访问数据库的定时任务，计数只包含列表查询本身
+ */
+@SpringBootTest(properties = {
+        "jwt.secret=query-count-test-secret-query-count-test-secret",
+        "jwt.expiration-ms=3600000",
+        "llm.qwen.apiKey=test",
+        "trip.purge.enabled=false",
+        "budget.reconcile.enabled=false",
+        "currency.rates.reload-ms=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class TripListingQueryCountTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private TripService tripService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TripRepository tripRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void fullListingRunsConstantNumberOfStatements() {
+        User few = userWithTrips(2);
+        User many = userWithTrips(25);
+
+        long fewStatements = statementsDuring(() -> tripService.getTripsByUser(few), 2);
+        long manyStatements = statementsDuring(() -> tripService.getTripsByUser(many), 25);
+
+        assertEquals(fewStatements, manyStatements);
+        // 行程及偏好一次，所有行程的位置一次
+        assertTrue(manyStatements <= 2, "trip listing ran " + manyStatements + " statements");
+    }
+
+    @Test
+    void summaryListingRunsConstantNumberOfStatements() {
+        User few = userWithTrips(2);
+        User many = userWithTrips(25);
+
+        long fewStatements = statementsDuring(() -> tripService.getTripSummariesByUser(few), 2);
+        long manyStatements = statementsDuring(() -> tripService.getTripSummariesByUser(many), 25);
+
+        assertEquals(fewStatements, manyStatements);
+        assertTrue(manyStatements <= 1, "trip summary listing ran " + manyStatements + " statements");
+    }
+
+    /**
+     * 清空二级缓存后执行列表查询，返回期间执行的select语句数
+     */
+    private long statementsDuring(Supplier<List<TripResponse>> listing, int expectedTrips) {
+        entityManagerFactory.getCache().evictAll();
+        long before = selectCount();
+        List<TripResponse> trips = listing.get();
+        long statements = selectCount() - before;
+        assertEquals(expectedTrips, trips.size());
+        return statements;
+    }
+
+    private long selectCount() {
+        long count = 0;
+        for (Timer timer : meterRegistry.find("db.statements").tag("type", "select").timers()) {
+            count += timer.count();
+        }
+        return count;
+    }
+
+    private User userWithTrips(int tripCount) {
+        User user = new User();
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("hash");
+        user = userRepository.save(user);
+
+        for (int i = 0; i < tripCount; i++) {
+            Trip trip = new Trip();
+            trip.setUser(user);
+            trip.setTitle("行程 " + i);
+            trip.setDestination("杭州");
+            trip.setStartDate(LocalDate.of(2026, 5, 1));
+            trip.setEndDate(LocalDate.of(2026, 5, 3));
+            trip.setPreferences(new ArrayList<>(Arrays.asList("美食", "自然")));
+            trip = tripRepository.save(trip);
+
+            List<Location> locations = new ArrayList<>();
+            for (int day = 1; day <= 3; day++) {
+                for (int order = 0; order < 2; order++) {
+                    Location location = new Location();
+                    location.setTrip(trip);
+                    location.setName("地点 " + day + "-" + order);
+                    location.setLng(120.15);
+                    location.setLat(30.28);
+                    location.setType("attraction");
+                    location.setDay(day);
+                    location.setOrderIndex(order);
+                    locations.add(location);
+                }
+            }
+            locationRepository.saveAll(locations);
+        }
+        return user;
+    }
+}
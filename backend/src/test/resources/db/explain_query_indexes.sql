@@ -0,0 +1,133 @@
+-- V3__query_indexes.sql 中各索引的执行计划和耗时验证
+-- 在已执行全部迁移的空白数据库上运行（例如docker-compose启动的数据库，应用启动过一次即可）：
+--   psql -h localhost -U postgres -d ai_travel_planner -f explain_query_indexes.sql
+--   psql ... -v trips=100000 -f explain_query_indexes.sql    -- 缩小数据量
+-- 默认生成10万用户、100万行程，位置和消费记录各1000万行，行程版本200万行；
+-- 数据在同一个事务中写入，结束时回滚，数据库保持不变。
+-- 每条查询输出 EXPLAIN (ANALYZE, BUFFERS)，应看到注释中索引的 Index Scan / Index Only Scan，而不是 Seq Scan
+
+\set ON_ERROR_STOP on
+\if :{?trips}
+\else
+\set trips 1000000
+\endif
+\timing on
+
+begin;
+
+-- 测试数据：ID由序号确定，行程可以直接引用所属用户
+insert into users (id, email, password_hash, token_version, created_at)
+select md5('u' || u)::uuid, 'user' || u || '@example.com', 'x', 0, timestamp '2024-01-01' + make_interval(secs => u)
+from generate_series(0, :trips / 10 - 1) u;
+
+-- 每100个行程中有1个已软删除
+insert into trips (id, user_id, title, destination, start_date, end_date, budget_total, budget_currency,
+                   companion_count, plan_version, created_at, deleted_at)
+select md5('t' || t)::uuid, md5('u' || (t % (:trips / 10)))::uuid, '行程 ' || t, '杭州',
+       date '2024-01-01' + t % 900, date '2024-01-03' + t % 900, 5000, 'CNY', 1, 2,
+       timestamp '2024-01-01' + make_interval(secs => t),
+       case when t % 100 = 0 then timestamp '2025-01-01' + make_interval(secs => t) end
+from generate_series(0, :trips - 1) t;
+
+insert into trip_preferences (trip_id, preference)
+select t.id, p
+from trips t cross join (values ('美食'), ('自然'), ('文化')) prefs (p);
+
+-- 每个行程3天、每天3到4个地点
+insert into locations (id, trip_id, name, lng, lat, description, type, day, order_index)
+select gen_random_uuid(), t.id, '地点 ' || k, 120.15 + k * 0.01, 30.28 + k * 0.01, null, 'attraction', k / 4 + 1, k % 4
+from trips t cross join generate_series(0, 9) k;
+
+insert into expenses (id, trip_id, user_id, amount, currency, comment, category, expense_date, created_at)
+select gen_random_uuid(), t.id, t.user_id, k * 17 % 500 + 0.5, case when k % 4 = 0 then 'JPY' else 'CNY' end,
+       '消费 ' || k, case when k % 2 = 0 then '餐饮' else '交通' end, t.start_date + k % 3,
+       t.created_at + make_interval(mins => k)
+from trips t cross join generate_series(0, 9) k;
+
+insert into trip_versions (id, trip_id, version, plan_data, description, created_at, keyframe)
+select gen_random_uuid(), t.id, v, '[]'::jsonb, '生成行程计划', t.created_at + make_interval(hours => v), v = 1
+from trips t cross join generate_series(1, 2) v;
+
+insert into refresh_tokens (id, user_id, family_id, token_hash, token_version, expires_at, revoked, created_at)
+select gen_random_uuid(), u.id, md5('f' || u.email)::uuid, decode(md5(u.email || r), 'hex'), 0,
+       timestamp '2030-01-01', r = 0, u.created_at
+from users u cross join generate_series(0, 1) r;
+
+analyze;
+
+-- 查询使用的用户、行程和刷新token家族
+select md5('t' || (:trips / 2 + 1))::uuid as trip_id \gset
+select user_id, created_at as trip_created_at, start_date as trip_start_date from trips where id = :'trip_id' \gset
+select family_id from refresh_tokens where user_id = :'user_id' limit 1 \gset
+
+-- idx_trips_user_created：行程列表（含偏好），按创建时间倒序
+explain (analyze, buffers)
+select t.*, p.preference from trips t left join trip_preferences p on p.trip_id = t.id
+where t.user_id = :'user_id' and t.deleted_at is null
+order by t.created_at desc;
+
+-- idx_trips_user_created：按创建时间的keyset分页
+explain (analyze, buffers)
+select * from trips
+where user_id = :'user_id' and deleted_at is null
+  and (created_at < :'trip_created_at' or (created_at = :'trip_created_at' and id < :'trip_id'))
+order by created_at desc, id desc
+limit 20;
+
+-- idx_trips_user_start：按开始日期的keyset分页
+explain (analyze, buffers)
+select * from trips
+where user_id = :'user_id' and deleted_at is null
+  and (start_date > :'trip_start_date' or (start_date = :'trip_start_date' and id > :'trip_id'))
+order by start_date, id
+limit 20;
+
+-- idx_trips_deleted：后台清理查找已删除的行程
+explain (analyze, buffers)
+select id from trips where deleted_at is not null and deleted_at < timestamp '2025-01-02' order by deleted_at limit 500;
+
+-- idx_trip_preferences_trip：按行程加载偏好
+explain (analyze, buffers)
+select preference from trip_preferences where trip_id = :'trip_id';
+
+-- idx_locations_trip_day_order：单个行程的计划
+explain (analyze, buffers)
+select * from locations where trip_id = :'trip_id' order by day, order_index;
+
+-- idx_locations_trip_day_order：行程列表一次加载所有行程的位置
+explain (analyze, buffers)
+select * from locations
+where trip_id = any (array(select id from trips where user_id = :'user_id' and deleted_at is null))
+order by day, order_index;
+
+-- idx_expenses_trip_created：消费记录keyset分页
+explain (analyze, buffers)
+select * from expenses where trip_id = :'trip_id' order by created_at desc, id desc limit 50;
+
+-- idx_expenses_trip_date：按消费日期过滤
+explain (analyze, buffers)
+select * from expenses
+where trip_id = :'trip_id' and expense_date between :'trip_start_date' and date :'trip_start_date' + 1;
+
+-- idx_expenses_trip_date：预算分析按类别、日期、货币汇总
+explain (analyze, buffers)
+select category, expense_date, currency, sum(amount), count(*) from expenses
+where trip_id = :'trip_id' group by category, expense_date, currency;
+
+-- uk_trip_versions_trip_version：读取版本时查找不晚于该版本的关键帧
+explain (analyze, buffers)
+select * from trip_versions where trip_id = :'trip_id' and keyframe and version <= 2 order by version desc limit 1;
+
+-- uk_trip_versions_trip_version：关键帧之后的补丁链
+explain (analyze, buffers)
+select * from trip_versions where trip_id = :'trip_id' and version between 1 and 2 order by version;
+
+-- idx_refresh_tokens_family：检测到token重放时吊销整个家族
+explain (analyze, buffers)
+update refresh_tokens set revoked = true where family_id = :'family_id' and revoked = false;
+
+-- idx_refresh_tokens_user：退出所有设备
+explain (analyze, buffers)
+update refresh_tokens set revoked = true where user_id = :'user_id' and revoked = false;
+
+rollback;